@@ -19,6 +19,7 @@
 
 /**
  * Exports the ExposedJsApi.java object if available, otherwise exports the PromptBasedNativeApi.
+ * The WebMessageNativeApi is used instead when the WEB_MESSAGE bridge mode is selected.
  */
 
 var nativeApi = this._cordovaNative || require('cordova/android/promptbasednativeapi');
@@ -29,6 +30,9 @@ module.exports = {
     setPreferPrompt: function (value) {
         currentApi = value ? require('cordova/android/promptbasednativeapi') : nativeApi;
     },
+    setPreferWebMessage: function (value) {
+        currentApi = value ? require('cordova/android/webmessagenativeapi') : nativeApi;
+    },
     // Used only by tests.
     set: function (value) {
         currentApi = value;
@@ -0,0 +1,57 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+/**
+ * Implements the API of ExposedJsApi.java over the window._cordovaWebMessage object
+ * injected by SystemWebMessageExecApi.java. Calls are asynchronous: anything
+ * exec() would have returned arrives later as a message on that object.
+ * The native side checks the page's origin, so bridgeSecret is ignored.
+ */
+
+var utils = require('cordova/utils');
+
+function post (message) {
+    window._cordovaWebMessage.postMessage(message);
+}
+
+module.exports = {
+    exec: function (bridgeSecret, service, action, callbackId, argsJson, args) {
+        // ArrayBuffers are posted as-is ahead of the call and take the place of
+        // the arguments at these indices.
+        var arrayBufferIndices = [];
+        for (var i = 0; i < args.length; i++) {
+            if (utils.typeName(args[i]) === 'ArrayBuffer') {
+                arrayBufferIndices.push(i);
+                post(args[i]);
+            }
+        }
+        post('gap:' + JSON.stringify([service, action, callbackId, argsJson, arrayBufferIndices]));
+    },
+    setNativeToJsBridgeMode: function (bridgeSecret, value) {
+        post('gap_bridge_mode:' + value);
+    },
+    retrieveJsMessages: function (bridgeSecret, fromOnlineEvent) {
+        post('gap_poll:' + (+fromOnlineEvent));
+    },
+    init: function (nativeToJsBridgeMode, onMessages) {
+        window._cordovaWebMessage.addEventListener('message', function (e) {
+            onMessages(e.data);
+        });
+        post('gap_init:' + nativeToJsBridgeMode);
+    }
+};
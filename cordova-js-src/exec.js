@@ -38,7 +38,10 @@ var base64 = require('cordova/base64');
 var channel = require('cordova/channel');
 var jsToNativeModes = {
     PROMPT: 0,
-    JS_OBJECT: 1
+    JS_OBJECT: 1,
+    // Posts calls to window._cordovaWebMessage without blocking. Available when
+    // the WebMessageExec preference is enabled and the WebView supports it.
+    WEB_MESSAGE: 2
 };
 var nativeToJsModes = {
     // Polls for messages using the JS->Native bridge.
@@ -50,14 +53,30 @@ var nativeToJsModes = {
     // listeners (both through addEventListener and window.ononline) as well
     // as set the navigator property itself.
     ONLINE_EVENT: 2,
-    EVAL_BRIDGE: 3
+    EVAL_BRIDGE: 3,
+    // Messages are posted to a MessagePort. Only registered by SystemWebViewEngine,
+    // which suggests it when the bridge is initialized if the WebMessageBridge
+    // preference is enabled.
+    WEB_MESSAGE: 4
 };
 var jsToNativeBridgeMode; // Set lazily.
 var nativeToJsBridgeMode = nativeToJsModes.EVAL_BRIDGE;
+// Whether the app called setNativeToJsBridgeMode(), in which case the engine's suggestion is ignored.
+var nativeToJsBridgeModeChosen = false;
+// Whether to send the exec() calls made within one tick together. Turned on by the
+// ExecBatching preference, through the reply to gap_init.
+var execBatching = false;
 var pollEnabled = false;
 var bridgeSecret = -1;
 
 var messagesFromNative = [];
+// exec() calls made within the current JS tick, sent together by flushExecs().
+var pendingExecs = [];
+// Pieces of a message that NativeToJsMessageQueue.java split up because it was too large.
+var pendingFragments = [];
+// ArrayBuffers posted to the native port ahead of the message that refers to them.
+var binaryPayloads = [];
+var nativePort = null;
 var isProcessing = false;
 var resolvedPromise = typeof Promise === 'undefined' ? null : Promise.resolve();
 var nextTick = resolvedPromise ? function (fn) { resolvedPromise.then(fn); } : function (fn) { setTimeout(fn); };
@@ -80,7 +99,8 @@ function androidExec (success, fail, service, action, args) {
     args = args || [];
 
     // Process any ArrayBuffers in the args into a string.
-    for (var i = 0; i < args.length; i++) {
+    // The WEB_MESSAGE bridge sends them as they are.
+    for (var i = 0; i < args.length && jsToNativeBridgeMode !== jsToNativeModes.WEB_MESSAGE; i++) {
         if (utils.typeName(args[i]) === 'ArrayBuffer') {
             args[i] = base64.fromArrayBuffer(args[i]);
         }
@@ -92,7 +112,16 @@ function androidExec (success, fail, service, action, args) {
         cordova.callbacks[callbackId] = { success, fail };
     }
 
-    var msgs = nativeApiProvider.get().exec(bridgeSecret, service, action, callbackId, argsJson);
+    if (execBatching && nativeApiProvider.get().execBatch) {
+        // Cross the bridge once for all of the calls made in this tick.
+        pendingExecs.push([service, action, callbackId, argsJson]);
+        if (pendingExecs.length === 1) {
+            nextTick(flushExecs);
+        }
+        return;
+    }
+
+    var msgs = nativeApiProvider.get().exec(bridgeSecret, service, action, callbackId, argsJson, args);
     // If argsJson was received by Java as null, try again with the PROMPT bridge mode.
     // This happens in rare circumstances, such as when certain Unicode characters are passed over the bridge on a Galaxy S2.  See CB-2666.
     if (jsToNativeBridgeMode === jsToNativeModes.JS_OBJECT && msgs === '@Null arguments.') {
@@ -106,11 +135,54 @@ function androidExec (success, fail, service, action, args) {
     }
 }
 
+function flushExecs () {
+    var calls = pendingExecs;
+    pendingExecs = [];
+    var api = nativeApiProvider.get();
+    var msgs;
+    if (calls.length === 1) {
+        msgs = api.exec(bridgeSecret, calls[0][0], calls[0][1], calls[0][2], calls[0][3]);
+    } else {
+        msgs = api.execBatch(bridgeSecret, JSON.stringify(calls));
+    }
+    // See CB-2666 above. Callbacks are already registered, so just resend the calls.
+    if (jsToNativeBridgeMode === jsToNativeModes.JS_OBJECT && msgs === '@Null arguments.') {
+        androidExec.setJsToNativeBridgeMode(jsToNativeModes.PROMPT);
+        pendingExecs = calls;
+        flushExecs();
+        androidExec.setJsToNativeBridgeMode(jsToNativeModes.JS_OBJECT);
+    } else if (msgs) {
+        messagesFromNative.push(msgs);
+        processMessages();
+    }
+}
+
 androidExec.init = function () {
-    bridgeSecret = +prompt('', 'gap_init:' + nativeToJsBridgeMode);
+    if (window._cordovaWebMessage) {
+        // Nothing is suggested over this bridge, so native->JS stays in the current mode
+        // unless the app selects another with setNativeToJsBridgeMode().
+        androidExec.setJsToNativeBridgeMode(jsToNativeModes.WEB_MESSAGE);
+        nativeApiProvider.get().init(nativeToJsBridgeMode, onMessagesFromNative);
+        // The native side checks the origin of each call instead of a secret.
+        bridgeSecret = 0;
+    } else {
+        // The bridge secret, optionally followed by the mode the engine would rather use
+        // (-1 if none) and whether to batch exec() calls.
+        var reply = (prompt('', 'gap_init:' + nativeToJsBridgeMode) || '').split(' ');
+        bridgeSecret = +reply[0];
+        if (reply.length > 1 && +reply[1] >= 0 && !nativeToJsBridgeModeChosen) {
+            switchNativeToJsBridgeMode(+reply[1]);
+        }
+        execBatching = reply[2] === '1';
+    }
     channel.onNativeReady.fire();
 };
 
+function onMessagesFromNative (msgs) {
+    messagesFromNative.push(msgs);
+    nextTick(processMessages);
+}
+
 function pollOnceFromOnlineEvent () {
     pollOnce(true);
 }
@@ -156,18 +228,54 @@ function hookOnlineApis () {
 
 hookOnlineApis();
 
+function onNativePortMessage (e) {
+    if (typeof e.data === 'string') {
+        messagesFromNative.push(e.data.length + ' ' + e.data);
+        nextTick(processMessages);
+    } else {
+        binaryPayloads.push(e.data);
+    }
+}
+
+// SystemWebMessageBridgeMode.java posts one end of a MessageChannel to the page.
+// Messages posted by native code have no source window.
+window.addEventListener('message', function (e) {
+    if (e.data !== 'gap_port' || e.source || !e.ports || e.ports.length !== 1) {
+        return;
+    }
+    e.stopImmediatePropagation();
+    if (nativePort) {
+        nativePort.close();
+    }
+    binaryPayloads = [];
+    nativePort = e.ports[0];
+    nativePort.onmessage = onNativePortMessage;
+}, false);
+
 androidExec.jsToNativeModes = jsToNativeModes;
 androidExec.nativeToJsModes = nativeToJsModes;
 
 androidExec.setJsToNativeBridgeMode = function (mode) {
+    if (mode === jsToNativeModes.WEB_MESSAGE && !window._cordovaWebMessage) {
+        mode = jsToNativeModes.JS_OBJECT;
+    }
     if (mode === jsToNativeModes.JS_OBJECT && !window._cordovaNative) {
         mode = jsToNativeModes.PROMPT;
     }
-    nativeApiProvider.setPreferPrompt(mode === jsToNativeModes.PROMPT);
+    if (mode === jsToNativeModes.WEB_MESSAGE) {
+        nativeApiProvider.setPreferWebMessage(true);
+    } else {
+        nativeApiProvider.setPreferPrompt(mode === jsToNativeModes.PROMPT);
+    }
     jsToNativeBridgeMode = mode;
 };
 
 androidExec.setNativeToJsBridgeMode = function (mode) {
+    nativeToJsBridgeModeChosen = true;
+    switchNativeToJsBridgeMode(mode);
+};
+
+function switchNativeToJsBridgeMode (mode) {
     if (mode === nativeToJsBridgeMode) {
         return;
     }
@@ -186,7 +294,7 @@ androidExec.setNativeToJsBridgeMode = function (mode) {
         pollEnabled = true;
         setTimeout(pollingTimerFunc, 1);
     }
-};
+}
 
 function buildPayload (payload, message) {
     var payloadKind = message.charAt(0);
@@ -205,6 +313,10 @@ function buildPayload (payload, message) {
         payload.push(base64.toArrayBuffer(data));
     } else if (payloadKind === 'S') {
         payload.push(window.atob(message.slice(1)));
+    } else if (payloadKind === 'a') {
+        payload.push(binaryPayloads.shift());
+    } else if (payloadKind === 'b') {
+        payload.push(arrayBufferToBinaryString(binaryPayloads.shift()));
     } else if (payloadKind === 'M') {
         var multipartMessages = message.slice(1);
         while (multipartMessages !== '') {
@@ -219,10 +331,35 @@ function buildPayload (payload, message) {
     }
 }
 
+function arrayBufferToBinaryString (buffer) {
+    var bytes = new Uint8Array(buffer);
+    var chunks = [];
+    // Chunked to stay under the engine's argument count limit.
+    for (var i = 0; i < bytes.length; i += 0x8000) {
+        chunks.push(String.fromCharCode.apply(null, bytes.subarray(i, i + 0x8000)));
+    }
+    return chunks.join('');
+}
+
+// Collects a fragment ('P', then '1' if more follow or '0' for the last one,
+// then the data) and processes the reassembled message once all have arrived.
+function processFragment (fragment) {
+    pendingFragments.push(fragment.slice(2));
+    if (fragment.charAt(1) === '0') {
+        var message = pendingFragments.join('');
+        pendingFragments = [];
+        processMessage(message);
+    }
+}
+
+androidExec.processFragment = processFragment;
+
 // Processes a single message, as encoded by NativeToJsMessageQueue.java.
 function processMessage (message) {
     var firstChar = message.charAt(0);
-    if (firstChar === 'J') {
+    if (firstChar === 'P') {
+        processFragment(message);
+    } else if (firstChar === 'J') {
         // This is deprecated on the .java side. It doesn't work with CSP enabled.
         // eslint-disable-next-line no-eval
         eval(message.slice(1));
@@ -20,7 +20,8 @@ package org.apache.cordova;
 
 import java.net.MalformedURLException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,6 +36,13 @@ public class AllowList {
         public Integer port;
         public Pattern path;
 
+        // The same pattern in the form that CompiledAllowList indexes. Scheme and host
+        // are lower-cased, since the regexes above only fold ASCII case.
+        String schemeKey;
+        String hostKey;
+        boolean hostSubdomains;
+        String[] pathLiterals;
+
         private String regexFromPattern(String pattern, boolean allowWildcards) {
             final String toReplace = "\\.[]{}()^$?+|";
             StringBuilder regex = new StringBuilder();
@@ -56,13 +64,17 @@ public class AllowList {
                     this.scheme = null;
                 } else {
                     this.scheme = Pattern.compile(regexFromPattern(scheme, false), Pattern.CASE_INSENSITIVE);
+                    schemeKey = toLowerCaseAscii(scheme);
                 }
                 if ("*".equals(host)) {
                     this.host = null;
                 } else if (host.startsWith("*.")) {
                     this.host = Pattern.compile("([a-z0-9.-]*\\.)?" + regexFromPattern(host.substring(2), false), Pattern.CASE_INSENSITIVE);
+                    hostKey = toLowerCaseAscii(host.substring(2));
+                    hostSubdomains = true;
                 } else {
                     this.host = Pattern.compile(regexFromPattern(host, false), Pattern.CASE_INSENSITIVE);
+                    hostKey = toLowerCaseAscii(host);
                 }
                 if (port == null || "*".equals(port)) {
                     this.port = null;
@@ -73,26 +85,167 @@ public class AllowList {
                     this.path = null;
                 } else {
                     this.path = Pattern.compile(regexFromPattern(path, true));
+                    if (isGlobSafe(path)) {
+                        pathLiterals = path.split("\\*", -1);
+                    }
                 }
             } catch (NumberFormatException e) {
                 throw new MalformedURLException("Port must be a number");
             }
         }
 
-        public boolean matches(Uri uri) {
-            try {
-                return ((scheme == null || scheme.matcher(uri.getScheme()).matches()) &&
-                        (host == null || host.matcher(uri.getHost()).matches()) &&
-                        (port == null || port.equals(uri.getPort())) &&
-                        (path == null || path.matcher(uri.getPath()).matches()));
-            } catch (Exception e) {
-                LOG.d(TAG, e.toString());
+        /**
+         * Matches everything but the scheme and host, which CompiledAllowList has
+         * already checked with the same results as the scheme and host regexes.
+         */
+        boolean matchesPortAndPath(Uri uri) {
+            if (port != null && port != uri.getPort()) {
                 return false;
             }
+            if (path == null) {
+                return true;
+            }
+            String uriPath = uri.getPath();
+            if (uriPath == null) {
+                return false;
+            }
+            return pathLiterals != null ? matchesGlob(pathLiterals, uriPath) : path.matcher(uriPath).matches();
+        }
+    }
+
+    /**
+     * The patterns indexed by scheme, and then by host in a trie of labels from the
+     * end, such as "com" then "example" for "*.example.com". Only the patterns that
+     * share the URL's scheme and host suffix are checked, instead of every pattern.
+     */
+    private static class CompiledAllowList {
+        final HashMap<String, HostTrie> schemes = new HashMap<String, HostTrie>();
+        final HostTrie anyScheme = new HostTrie();
+
+        CompiledAllowList(List<URLPattern> patterns) {
+            for (URLPattern pattern : patterns) {
+                HostTrie hosts = anyScheme;
+                if (pattern.schemeKey != null) {
+                    hosts = schemes.get(pattern.schemeKey);
+                    if (hosts == null) {
+                        hosts = new HostTrie();
+                        schemes.put(pattern.schemeKey, hosts);
+                    }
+                }
+                hosts.add(pattern);
+            }
+        }
+
+        boolean matches(Uri uri) {
+            String scheme = uri.getScheme();
+            if (scheme != null) {
+                HostTrie hosts = schemes.get(toLowerCaseAscii(scheme));
+                if (hosts != null && hosts.matches(uri)) {
+                    return true;
+                }
+            }
+            return anyScheme.matches(uri);
+        }
+    }
+
+    private static class HostTrie {
+        final ArrayList<URLPattern> anyHost = new ArrayList<URLPattern>();
+        final Node root = new Node();
+
+        static class Node {
+            HashMap<String, Node> children;
+            // Patterns for exactly this host, and for it or any of its subdomains.
+            ArrayList<URLPattern> exact;
+            ArrayList<URLPattern> subdomains;
+        }
+
+        void add(URLPattern pattern) {
+            if (pattern.hostKey == null) {
+                anyHost.add(pattern);
+                return;
+            }
+            String[] labels = pattern.hostKey.split("\\.", -1);
+            Node node = root;
+            for (int i = labels.length - 1; i >= 0; i--) {
+                if (node.children == null) {
+                    node.children = new HashMap<String, Node>();
+                }
+                Node child = node.children.get(labels[i]);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(labels[i], child);
+                }
+                node = child;
+            }
+            if (pattern.hostSubdomains) {
+                if (node.subdomains == null) {
+                    node.subdomains = new ArrayList<URLPattern>();
+                }
+                node.subdomains.add(pattern);
+            } else {
+                if (node.exact == null) {
+                    node.exact = new ArrayList<URLPattern>();
+                }
+                node.exact.add(pattern);
+            }
+        }
+
+        boolean matches(Uri uri) {
+            if (anyMatches(anyHost, uri)) {
+                return true;
+            }
+            String host = uri.getHost();
+            if (host == null || root.children == null) {
+                return false;
+            }
+            host = toLowerCaseAscii(host);
+            // "*.example.com" allows any run of [a-z0-9.-] and a dot before "example.com".
+            int firstInvalidIndex = host.length();
+            for (int i = 0; i < host.length(); i++) {
+                char c = host.charAt(i);
+                if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || c == '-')) {
+                    firstInvalidIndex = i;
+                    break;
+                }
+            }
+            Node node = root;
+            int end = host.length();
+            while (true) {
+                int start = host.lastIndexOf('.', end - 1) + 1;
+                node = node.children.get(host.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                if (start == 0) {
+                    // The whole host has been consumed.
+                    return anyMatches(node.exact, uri) || anyMatches(node.subdomains, uri);
+                }
+                if (firstInvalidIndex >= start - 1 && anyMatches(node.subdomains, uri)) {
+                    return true;
+                }
+                if (node.children == null) {
+                    return false;
+                }
+                end = start - 1;
+            }
+        }
+
+        private static boolean anyMatches(ArrayList<URLPattern> patterns, Uri uri) {
+            if (patterns != null) {
+                for (int i = 0; i < patterns.size(); i++) {
+                    if (patterns.get(i).matchesPortAndPath(uri)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         }
     }
 
     private ArrayList<URLPattern> allowList;
+    // Built from allowList when it's first needed after a change. Both are changed and
+    // compiled while holding this AllowList's lock.
+    private volatile CompiledAllowList compiledAllowList;
 
     public static final String TAG = "CordovaAllowList";
 
@@ -111,7 +264,7 @@ public class AllowList {
      * the scheme to be omitted for backwards compatibility. (Also host is not required
      * to begin with a "*" or "*.".)
      */
-    public void addAllowListEntry(String origin, boolean subdomains) {
+    public synchronized void addAllowListEntry(String origin, boolean subdomains) {
         if (allowList != null) {
             try {
                 // Unlimited access to network resources
@@ -141,6 +294,10 @@ public class AllowList {
             } catch (Exception e) {
                 LOG.d(TAG, "Failed to add origin %s", origin);
             }
+            // Only once the list has changed. Compiling holds the same lock, so a list
+            // compiled before the change can't be stored after this.
+            compiledAllowList = null;
+            PolicyDecisionCache.invalidateAll();
         }
     }
 
@@ -155,16 +312,96 @@ public class AllowList {
         // If there is no allowList, then it's wide open
         if (allowList == null) return true;
 
-        Uri parsedUri = Uri.parse(uri);
-        // Look for match in allow list
-        Iterator<URLPattern> pit = allowList.iterator();
-        while (pit.hasNext()) {
-            URLPattern p = pit.next();
-            if (p.matches(parsedUri)) {
+        CompiledAllowList compiled = compiledAllowList;
+        if (compiled == null) {
+            synchronized (this) {
+                // The list may have changed meanwhile.
+                if (allowList == null) return true;
+                compiled = compiledAllowList;
+                if (compiled == null) {
+                    compiled = new CompiledAllowList(allowList);
+                    compiledAllowList = compiled;
+                }
+            }
+        }
+        return compiled.matches(Uri.parse(uri));
+    }
+
+    /**
+     * Lower-cases A-Z only, like Pattern.CASE_INSENSITIVE.
+     */
+    private static String toLowerCaseAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = s.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] += 'a' - 'A';
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Returns whether a wildcard ("." in the regex) can't match any char in the path
+     * pattern, so that matchesGlob() gives the same results as the regex. Otherwise the
+     * regex is used.
+     */
+    private static boolean isGlobSafe(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (isLineTerminator(c) || Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The chars that "." doesn't match without Pattern.DOTALL.
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Matches a path against the literals between the "*"s of a path pattern. Each "*"
+     * matches any run of chars other than line terminators.
+     */
+    private static boolean matchesGlob(String[] literals, String path) {
+        String first = literals[0];
+        if (literals.length == 1) {
+            return path.equals(first);
+        }
+        if (!path.startsWith(first)) {
+            return false;
+        }
+        String last = literals[literals.length - 1];
+        int lastStart = path.length() - last.length();
+        if (lastStart < first.length() || !path.endsWith(last)) {
+            return false;
+        }
+        int position = first.length();
+        for (int i = 1; i < literals.length - 1; i++) {
+            // The earliest match is always best, since literals contain no line terminators.
+            int found = path.indexOf(literals[i], position);
+            if (found == -1 || found + literals[i].length() > lastStart
+                    || containsLineTerminator(path, position, found)) {
+                return false;
+            }
+            position = found + literals[i].length();
+        }
+        return !containsLineTerminator(path, position, lastStart);
+    }
+
+    private static boolean containsLineTerminator(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (isLineTerminator(s.charAt(i))) {
                 return true;
             }
         }
         return false;
     }
-
 }
@@ -23,7 +23,6 @@ import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.ConfigXmlParser;
 import org.apache.cordova.LOG;
 import org.apache.cordova.AllowList;
-import org.apache.cordova.CordovaPreferences;
 import org.xmlpull.v1.XmlPullParser;
 
 import android.content.Context;
@@ -42,12 +41,14 @@ public class AllowListPlugin extends CordovaPlugin {
     // These can be used by plugin developers to allow Java-configuration of an allow list.
     public AllowListPlugin(Context context) {
         this(new AllowList(), new AllowList(), null);
-        new CustomConfigXmlParser().parse(context);
+        addAllowListEntries(ConfigXmlData.getInstance(context));
     }
 
     public AllowListPlugin(XmlPullParser xmlParser) {
         this(new AllowList(), new AllowList(), null);
-        new CustomConfigXmlParser().parse(xmlParser);
+        ConfigXmlParser parser = new ConfigXmlParser();
+        parser.parse(xmlParser);
+        addAllowListEntries(parser.getConfigXmlData());
     }
 
     public AllowListPlugin(AllowList allowedNavigations, AllowList allowedIntents, AllowList allowedRequests) {
@@ -60,6 +61,7 @@ public class AllowListPlugin extends CordovaPlugin {
         this.allowedNavigations = allowedNavigations;
         this.allowedIntents = allowedIntents;
         this.allowedRequests = allowedRequests;
+        PolicyDecisionCache.invalidateAll();
     }
 
     @Override
@@ -69,48 +71,20 @@ public class AllowListPlugin extends CordovaPlugin {
             this.allowedIntents = new AllowList();
             this.allowedRequests = new AllowList();
 
-            new CustomConfigXmlParser().parse(webView.getContext());
+            addAllowListEntries(ConfigXmlData.getInstance(webView.getContext()));
         }
     }
 
-    private class CustomConfigXmlParser extends ConfigXmlParser {
-        private CordovaPreferences prefs = new CordovaPreferences();
-
-        @Override
-        public void handleStartTag(XmlPullParser xml) {
-            String strNode = xml.getName();
-            if (strNode.equals("content")) {
-                String startPage = xml.getAttributeValue(null, "src");
-                allowedNavigations.addAllowListEntry(startPage, false);
-            } else if (strNode.equals("allow-navigation")) {
-                String origin = xml.getAttributeValue(null, "href");
-                if ("*".equals(origin)) {
-                    allowedNavigations.addAllowListEntry("http://*/*", false);
-                    allowedNavigations.addAllowListEntry("https://*/*", false);
-                    allowedNavigations.addAllowListEntry("data:*", false);
-                } else {
-                    allowedNavigations.addAllowListEntry(origin, false);
-                }
-            } else if (strNode.equals("allow-intent")) {
-                String origin = xml.getAttributeValue(null, "href");
-                allowedIntents.addAllowListEntry(origin, false);
-            } else if (strNode.equals("access")) {
-                String origin = xml.getAttributeValue(null, "origin");
-
-                if (origin != null) {
-                    if ("*".equals(origin)) {
-                        allowedRequests.addAllowListEntry("http://*/*", false);
-                        allowedRequests.addAllowListEntry("https://*/*", false);
-                    } else {
-                        String subdomains = xml.getAttributeValue(null, "subdomains");
-                        allowedRequests.addAllowListEntry(origin, (subdomains != null) && (subdomains.compareToIgnoreCase("true") == 0));
-                    }
-                }
-            }
+    private void addAllowListEntries(ConfigXmlData config) {
+        for (ConfigXmlData.AllowListEntry entry : config.getAllowedNavigations()) {
+            allowedNavigations.addAllowListEntry(entry.origin, entry.subdomains);
+        }
+        for (ConfigXmlData.AllowListEntry entry : config.getAllowedIntents()) {
+            allowedIntents.addAllowListEntry(entry.origin, entry.subdomains);
+        }
+        for (ConfigXmlData.AllowListEntry entry : config.getAllowedRequests()) {
+            allowedRequests.addAllowListEntry(entry.origin, entry.subdomains);
         }
-
-        @Override
-        public void handleEndTag(XmlPullParser xml) { }
     }
 
     @Override
@@ -140,6 +114,7 @@ public class AllowListPlugin extends CordovaPlugin {
 
     public void setAllowedNavigations(AllowList allowedNavigations) {
         this.allowedNavigations = allowedNavigations;
+        PolicyDecisionCache.invalidateAll();
     }
 
     public AllowList getAllowedIntents() {
@@ -148,6 +123,7 @@ public class AllowListPlugin extends CordovaPlugin {
 
     public void setAllowedIntents(AllowList allowedIntents) {
         this.allowedIntents = allowedIntents;
+        PolicyDecisionCache.invalidateAll();
     }
 
     public AllowList getAllowedRequests() {
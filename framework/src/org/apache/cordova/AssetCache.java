@@ -0,0 +1,193 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.content.res.AssetManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least-recently-used, byte-budgeted, in-memory cache of APK assets.
+ *
+ * <p>Assets are decompressed from the APK each time they're opened, which adds up
+ * when the same pages and scripts are loaded over and over. Assets that are larger
+ * than half of the budget are never cached, so that one of them can't evict
+ * everything else.</p>
+ */
+public class AssetCache {
+    private static final String LOG_TAG = "AssetCache";
+
+    private static AssetCache instance;
+
+    private final AssetManager assetManager;
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong prefetchCount = new AtomicLong();
+    // Guarded by this.
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private int size;
+
+    /**
+     * @param maxSize   The most bytes of asset data to keep.
+     */
+    public AssetCache(AssetManager assetManager, int maxSize) {
+        this.assetManager = assetManager;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache shared by every WebView in the process, creating it with the
+     * given budget the first time.
+     */
+    public static synchronized AssetCache getInstance(AssetManager assetManager, int maxSize) {
+        if (instance == null) {
+            instance = new AssetCache(assetManager, maxSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Opens an asset, from memory if it's cached.
+     *
+     * @param assetPath     The path of the asset, such as "www/index.html".
+     */
+    public InputStream open(String assetPath) throws IOException {
+        byte[] data;
+        synchronized (this) {
+            data = entries.get(assetPath);
+        }
+        if (data != null) {
+            hitCount.incrementAndGet();
+            return new ByteArrayInputStream(data);
+        }
+        missCount.incrementAndGet();
+
+        InputStream is = openAsset(assetPath);
+        // For assets, available() is the length of the uncompressed data.
+        if (is.available() > maxSize / 2) {
+            return is;
+        }
+        try {
+            data = readFully(is);
+        } finally {
+            is.close();
+        }
+        put(assetPath, data);
+        return new ByteArrayInputStream(data);
+    }
+
+    /**
+     * Reads an asset into the cache ahead of it being opened, unless it's already
+     * cached or too large.
+     *
+     * @return Whether the asset is now cached.
+     */
+    public boolean prefetch(String assetPath) throws IOException {
+        synchronized (this) {
+            if (entries.containsKey(assetPath)) {
+                return true;
+            }
+        }
+        InputStream is = openAsset(assetPath);
+        byte[] data;
+        try {
+            if (is.available() > maxSize / 2) {
+                return false;
+            }
+            data = readFully(is);
+        } finally {
+            is.close();
+        }
+        put(assetPath, data);
+        prefetchCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Opens an asset from the APK. Overridden by tests.
+     */
+    protected InputStream openAsset(String assetPath) throws IOException {
+        return assetManager.open(assetPath, AssetManager.ACCESS_STREAMING);
+    }
+
+    private synchronized void put(String assetPath, byte[] data) {
+        if (data.length > maxSize / 2) {
+            return;
+        }
+        byte[] previous = entries.put(assetPath, data);
+        if (previous != null) {
+            size -= previous.length;
+        }
+        size += data.length;
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            LOG.d(LOG_TAG, "Evicting " + eldest.getKey());
+            size -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(is.available(), 8192));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /** Returns the number of bytes of asset data that are cached. */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Returns the number of times open() was served from memory. */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** Returns the number of times open() had to read the APK. */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** Returns the number of assets that prefetch() read into the cache. */
+    public long getPrefetchCount() {
+        return prefetchCount.get();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.content.res.AssetManager;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * The list of www/ assets that lib/prepare.js writes when the AssetManifest
+ * preference is enabled, with each file's size, MIME type and content hash.
+ *
+ * <p>Knowing every www/ asset up front lets requests for missing files fail
+ * without an exception, and gives exact lengths for assets that are compressed
+ * in the APK.</p>
+ */
+public class AssetManifest {
+    private static final String LOG_TAG = "AssetManifest";
+
+    // Written by updateAssetManifest() in lib/prepare.js. Keep the two in sync.
+    public static final String FILE_NAME = "cordova-asset-manifest.bin";
+    private static final int MAGIC = 0x43445641; // "CDVA"
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 16;
+    private static final String WWW_PREFIX = "www/";
+
+    private static AssetManifest instance;
+    private static boolean instanceLoaded;
+
+    public static class Entry {
+        private final String path;
+        private final long size;
+        private final String mimeType;
+        private final byte[] hash;
+
+        Entry(String path, long size, String mimeType, byte[] hash) {
+            this.path = path;
+            this.size = size;
+            this.mimeType = mimeType;
+            this.hash = hash;
+        }
+
+        /** Returns the path relative to www/. */
+        public String getPath() {
+            return path;
+        }
+
+        /** Returns the uncompressed size in bytes. */
+        public long getSize() {
+            return size;
+        }
+
+        /** Returns the MIME type, or null if it should be looked up from the extension. */
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        /** Returns the start of the SHA-256 hash of the contents as hex. */
+        public String getHashHex() {
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final HashMap<String, Entry> entries;
+
+    private AssetManifest(HashMap<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the app's manifest, loading it the first time, or null if the app
+     * was prepared without one.
+     */
+    public static synchronized AssetManifest getInstance(AssetManager assetManager) {
+        if (!instanceLoaded) {
+            instanceLoaded = true;
+            try {
+                InputStream is = assetManager.open(FILE_NAME);
+                try {
+                    instance = read(is);
+                    LOG.d(LOG_TAG, "Loaded manifest of " + instance.entries.size() + " www assets");
+                } finally {
+                    is.close();
+                }
+            } catch (FileNotFoundException e) {
+                // The AssetManifest preference isn't enabled.
+            } catch (IOException e) {
+                LOG.e(LOG_TAG, "Failed to read " + FILE_NAME, e);
+            }
+        }
+        return instance;
+    }
+
+    public static AssetManifest read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an asset manifest");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported asset manifest version: " + version);
+        }
+        String[] mimeTypes = new String[in.readInt()];
+        for (int i = 0; i < mimeTypes.length; i++) {
+            mimeTypes[i] = readString(in);
+        }
+        int count = in.readInt();
+        HashMap<String, Entry> entries = new HashMap<String, Entry>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            String path = readString(in);
+            long size = in.readLong();
+            int mimeIndex = in.readShort();
+            byte[] hash = new byte[HASH_LENGTH];
+            in.readFully(hash);
+            entries.put(path, new Entry(path, size, mimeIndex < 0 ? null : mimeTypes[mimeIndex], hash));
+        }
+        return new AssetManifest(entries);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Looks up a path relative to www/. Returns null if there's no such asset.
+     */
+    public Entry getWwwEntry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Returns whether the manifest lists every asset under assetPath's directory,
+     * so that get() returning null means the asset doesn't exist.
+     */
+    public boolean covers(String assetPath) {
+        return assetPath.startsWith(WWW_PREFIX);
+    }
+
+    /**
+     * Looks up an asset path, such as "www/index.html". Returns null if the asset
+     * isn't covered by the manifest or doesn't exist.
+     */
+    public Entry get(String assetPath) {
+        return covers(assetPath) ? entries.get(assetPath.substring(WWW_PREFIX.length())) : null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Remembers which assets the WebView requested during the first seconds of a launch,
+ * and reads them into the AssetCache at the start of the next one.
+ *
+ * <p>On a cold start the page's subresources are discovered one after another, and
+ * each is read from the APK when it's requested. Prefetching them while the activity
+ * and WebView are still being set up means they're served from memory instead.</p>
+ *
+ * <p>Enabled by the AssetPrefetchSeconds preference, which is how long to record for.
+ * Requires the AssetCacheSizeKB preference, since that's where assets are prefetched
+ * to. The profile is rewritten on every launch, so it follows app updates.</p>
+ */
+public class AssetPrefetchProfile {
+    private static final String LOG_TAG = "AssetPrefetchProfile";
+
+    public static final String FILE_NAME = "cordova-asset-prefetch-profile.txt";
+    private static final int MAX_ASSETS = 256;
+
+    private static AssetPrefetchProfile instance;
+
+    private final File file;
+    private final AssetCache cache;
+    private final ExecutorService executor;
+    private final long recordUntil;
+    // Guarded by this.
+    private final LinkedHashSet<String> recorded = new LinkedHashSet<String>();
+    private boolean recording = true;
+
+    AssetPrefetchProfile(File file, AssetCache cache, ExecutorService executor, long recordMillis) {
+        this.file = file;
+        this.cache = cache;
+        this.executor = executor;
+        recordUntil = SystemClock.elapsedRealtime() + recordMillis;
+    }
+
+    /**
+     * Starts prefetching the assets recorded by the previous launch, and recording
+     * this one. Does nothing if the preferences don't enable it, or if it was already
+     * started in this process.
+     *
+     * @param executor  Runs the prefetching and saving.
+     */
+    public static synchronized void start(Context context, CordovaPreferences preferences, ExecutorService executor) {
+        int recordSeconds = preferences.getInteger("AssetPrefetchSeconds", 0);
+        int assetCacheSizeKB = preferences.getInteger("AssetCacheSizeKB", 0);
+        if (instance != null || recordSeconds <= 0 || assetCacheSizeKB <= 0) {
+            return;
+        }
+        AssetCache cache = AssetCache.getInstance(context.getAssets(), assetCacheSizeKB * 1024);
+        instance = new AssetPrefetchProfile(new File(context.getFilesDir(), FILE_NAME), cache, executor, recordSeconds * 1000L);
+        instance.prefetch();
+        new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                instance.stopRecording();
+            }
+        }, recordSeconds * 1000L);
+    }
+
+    /**
+     * Returns the profile that start() created, or null.
+     */
+    public static synchronized AssetPrefetchProfile getInstance() {
+        return instance;
+    }
+
+    private void prefetch() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<String> assetPaths;
+                try {
+                    assetPaths = load(file);
+                } catch (FileNotFoundException e) {
+                    // First launch.
+                    return;
+                } catch (IOException e) {
+                    LOG.e(LOG_TAG, "Failed to read " + file, e);
+                    return;
+                }
+                int prefetched = 0;
+                for (String assetPath : assetPaths) {
+                    try {
+                        if (cache.prefetch(assetPath)) {
+                            prefetched++;
+                        }
+                    } catch (IOException e) {
+                        // Removed by an app update.
+                    }
+                }
+                LOG.d(LOG_TAG, "Prefetched " + prefetched + " of " + assetPaths.size() + " assets");
+            }
+        });
+    }
+
+    /**
+     * Records that the WebView requested an asset, if it's still early enough in the
+     * launch.
+     *
+     * @param assetPath     The path of the asset, such as "www/index.html".
+     */
+    public void record(String assetPath) {
+        synchronized (this) {
+            if (!recording) {
+                return;
+            }
+            if (SystemClock.elapsedRealtime() < recordUntil) {
+                if (recorded.size() < MAX_ASSETS) {
+                    recorded.add(assetPath);
+                }
+                return;
+            }
+        }
+        stopRecording();
+    }
+
+    /**
+     * Saves what was recorded, so that the next launch prefetches it.
+     */
+    void stopRecording() {
+        final List<String> assetPaths;
+        synchronized (this) {
+            if (!recording) {
+                return;
+            }
+            recording = false;
+            assetPaths = new ArrayList<String>(recorded);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    save(file, assetPaths);
+                    LOG.d(LOG_TAG, "Recorded " + assetPaths.size() + " assets to prefetch");
+                } catch (IOException e) {
+                    LOG.e(LOG_TAG, "Failed to write " + file, e);
+                }
+            }
+        });
+    }
+
+    static List<String> load(File file) throws IOException {
+        List<String> assetPaths = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null && assetPaths.size() < MAX_ASSETS) {
+                if (!line.isEmpty()) {
+                    assetPaths.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return assetPaths;
+    }
+
+    static void save(File file, List<String> assetPaths) throws IOException {
+        // Written to the side and renamed, so a launch never reads half a profile.
+        File tmpFile = new File(file.getPath() + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8);
+        try {
+            for (String assetPath : assetPaths) {
+                writer.write(assetPath);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + tmpFile);
+        }
+    }
+}
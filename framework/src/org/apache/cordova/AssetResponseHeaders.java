@@ -0,0 +1,172 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the ETag, Last-Modified and Cache-Control headers for www/ assets.
+ *
+ * <p>ETags come from the content hashes in the AssetManifest when there is one, and
+ * otherwise from the time the APK was installed or updated, which is when assets can
+ * change. Files with a content hash in their name, as bundlers write them, may be
+ * cached forever. Everything else has to be revalidated.</p>
+ */
+public class AssetResponseHeaders {
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    public static final String REVALIDATE_CACHE_CONTROL = "no-cache";
+
+    // A run of at least 8 letters, digits or underscores, one of them a digit, just before
+    // the extension. Matches "main.3f2a9c1b.js" and "index-BZ4xkL2p.js", not "polyfill.js".
+    private static final Pattern HASHED_FILE_NAME = Pattern.compile("[.-](?=[A-Za-z0-9_]*[0-9])[A-Za-z0-9_]{8,}\\.[A-Za-z0-9]+$");
+
+    private final AssetManifest manifest;
+    private final String installTag;
+    private final String lastModified;
+    private final AtomicLong conditionalRequestCount = new AtomicLong();
+    private final AtomicLong validatorHitCount = new AtomicLong();
+
+    /**
+     * @param manifest          The app's AssetManifest, or null.
+     * @param lastUpdateTime    When the APK was installed or last updated, in milliseconds.
+     */
+    public AssetResponseHeaders(AssetManifest manifest, long lastUpdateTime) {
+        this.manifest = manifest;
+        installTag = Long.toHexString(lastUpdateTime);
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        lastModified = format.format(new Date(lastUpdateTime));
+    }
+
+    /**
+     * Returns the headers for an asset response.
+     *
+     * @param assetPath     The asset that was requested, such as "www/index.html".
+     * @param encoding      The Content-Encoding of the precompressed variant being
+     *                      served, or null.
+     */
+    public Map<String, String> get(String assetPath, String encoding) {
+        Map<String, String> headers = new HashMap<String, String>();
+        if (encoding != null) {
+            headers.put("Content-Encoding", encoding);
+        }
+        headers.put("ETag", getETag(assetPath, encoding));
+        headers.put("Last-Modified", lastModified);
+        headers.put("Cache-Control", isHashNamed(assetPath) ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        return headers;
+    }
+
+    /**
+     * Returns a strong ETag for an asset. Each Content-Encoding gets its own, since the
+     * bytes differ.
+     */
+    public String getETag(String assetPath, String encoding) {
+        if (manifest != null) {
+            String servedPath = encoding == null ? assetPath : assetPath + ("br".equals(encoding) ? ".br" : ".gz");
+            AssetManifest.Entry entry = manifest.get(servedPath);
+            if (entry != null) {
+                return "\"" + entry.getHashHex() + "\"";
+            }
+        }
+        return "\"" + installTag + (encoding == null ? "" : "-" + encoding) + "\"";
+    }
+
+    public static boolean isHashNamed(String path) {
+        return HASHED_FILE_NAME.matcher(path).find();
+    }
+
+    /**
+     * Checks a request's If-None-Match and If-Modified-Since headers against the
+     * response's validators, and counts the requests that had any.
+     *
+     * @return Whether the client's copy is still current.
+     */
+    public boolean isNotModified(Map<String, String> requestHeaders, Map<String, String> responseHeaders) {
+        if (requestHeaders == null || responseHeaders == null) {
+            return false;
+        }
+        String ifNoneMatch = getHeader(requestHeaders, "If-None-Match");
+        String ifModifiedSince = getHeader(requestHeaders, "If-Modified-Since");
+        if (ifNoneMatch == null && ifModifiedSince == null) {
+            return false;
+        }
+        conditionalRequestCount.incrementAndGet();
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is ignored when there's an If-None-Match.
+            notModified = matchesETag(ifNoneMatch, getHeader(responseHeaders, "ETag"));
+        } else {
+            notModified = ifModifiedSince.equals(getHeader(responseHeaders, "Last-Modified"));
+        }
+        if (notModified) {
+            validatorHitCount.incrementAndGet();
+        }
+        return notModified;
+    }
+
+    /**
+     * Uses the weak comparison that If-None-Match calls for.
+     */
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (etag == null) {
+            return false;
+        }
+        etag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate) || etag.equals(stripWeakPrefix(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Looks up a header by name, ignoring case.
+     */
+    public static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /** Returns the number of asset requests that carried If-None-Match or If-Modified-Since. */
+    public long getConditionalRequestCount() {
+        return conditionalRequestCount.get();
+    }
+
+    /** Returns the number of conditional asset requests whose validators still matched. */
+    public long getValidatorHitCount() {
+        return validatorHitCount.get();
+    }
+}
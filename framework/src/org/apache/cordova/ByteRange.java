@@ -0,0 +1,176 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A single byte range from an HTTP Range header, resolved against the length of
+ * the resource.
+ */
+public class ByteRange {
+    /** The first byte of the range. */
+    public final long start;
+    /** The last byte of the range, inclusive. */
+    public final long end;
+    /** The length of the whole resource. */
+    public final long totalLength;
+
+    public ByteRange(long start, long end, long totalLength) {
+        this.start = start;
+        this.end = end;
+        this.totalLength = totalLength;
+    }
+
+    /**
+     * Parses a Range header such as "bytes=0-499", "bytes=500-" or "bytes=-500".
+     *
+     * @return The range, which may not be satisfiable, or null if the header should be
+     *         ignored and the whole resource returned. Lists of ranges are ignored.
+     */
+    public static ByteRange parse(String header, long totalLength) {
+        if (header == null || totalLength < 0) {
+            return null;
+        }
+        header = header.trim();
+        if (!header.regionMatches(true, 0, "bytes=", 0, 6) || header.indexOf(',') != -1) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // A suffix: the last n bytes.
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0) {
+                    return new ByteRange(totalLength, totalLength - 1, totalLength);
+                }
+                return new ByteRange(Math.max(0, totalLength - suffixLength), totalLength - 1, totalLength);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? totalLength - 1 : Math.min(Long.parseLong(last), totalLength - 1);
+            if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+                return null;
+            }
+            return new ByteRange(start, end, totalLength);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether any of the range is within the resource. If not, the response
+     * should be a 416.
+     */
+    public boolean isSatisfiable() {
+        return start < totalLength && start <= end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /** Returns the value for a 206 response's Content-Range header. */
+    public String getContentRange() {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+
+    /** Returns the value for a 416 response's Content-Range header. */
+    public String getUnsatisfiedContentRange() {
+        return "bytes */" + totalLength;
+    }
+
+    /**
+     * Skips a stream of the whole resource to the start of the range, and returns a
+     * stream that ends with the range. Streams of files, and of assets that are stored
+     * uncompressed, seek rather than read the skipped bytes.
+     */
+    public InputStream open(InputStream in) throws IOException {
+        long remaining = start;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                // skip() may stop early without being at the end.
+                if (in.read() == -1) {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return new LimitedInputStream(in, getLength());
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of everything the framework reads from config.xml: preferences,
+ * plugin entries, the content src and the allow list entries.
+ *
+ * <p>config.xml is compiled to binary XML by aapt, so it is already cheap to walk once.
+ * The first ConfigXmlParser to parse it keeps a ConfigXmlData, and later parsers and
+ * AllowListPlugin use that copy instead of walking the XML again.</p>
+ */
+public final class ConfigXmlData {
+
+    /**
+     * An origin to pass to AllowList.addAllowListEntry().
+     */
+    public static final class AllowListEntry {
+        public final String origin;
+        public final boolean subdomains;
+
+        public AllowListEntry(String origin, boolean subdomains) {
+            this.origin = origin;
+            this.subdomains = subdomains;
+        }
+    }
+
+    // Guarded by ConfigXmlData.class.
+    private static int cachedResourceId;
+    private static ConfigXmlData cached;
+
+    private final Map<String, String> preferences;
+    private final List<PluginEntry> pluginEntries;
+    private final String contentSrc;
+    private final List<AllowListEntry> allowedNavigations;
+    private final List<AllowListEntry> allowedIntents;
+    private final List<AllowListEntry> allowedRequests;
+
+    ConfigXmlData(Map<String, String> preferences, List<PluginEntry> pluginEntries, String contentSrc,
+            List<AllowListEntry> allowedNavigations, List<AllowListEntry> allowedIntents, List<AllowListEntry> allowedRequests) {
+        this.preferences = Collections.unmodifiableMap(new HashMap<String, String>(preferences));
+        this.pluginEntries = Collections.unmodifiableList(new ArrayList<PluginEntry>(pluginEntries));
+        this.contentSrc = contentSrc;
+        this.allowedNavigations = Collections.unmodifiableList(new ArrayList<AllowListEntry>(allowedNavigations));
+        this.allowedIntents = Collections.unmodifiableList(new ArrayList<AllowListEntry>(allowedIntents));
+        this.allowedRequests = Collections.unmodifiableList(new ArrayList<AllowListEntry>(allowedRequests));
+    }
+
+    /**
+     * Returns the app's config.xml, parsing it only if no ConfigXmlParser has yet.
+     */
+    public static ConfigXmlData getInstance(Context context) {
+        ConfigXmlParser parser = new ConfigXmlParser();
+        parser.parse(context);
+        return parser.getConfigXmlData();
+    }
+
+    static synchronized ConfigXmlData getCached(int resourceId) {
+        return resourceId == cachedResourceId ? cached : null;
+    }
+
+    static synchronized void setCached(int resourceId, ConfigXmlData data) {
+        cachedResourceId = resourceId;
+        cached = data;
+    }
+
+    /**
+     * Preferences by lower case name.
+     */
+    public Map<String, String> getPreferences() {
+        return preferences;
+    }
+
+    public List<PluginEntry> getPluginEntries() {
+        return pluginEntries;
+    }
+
+    /**
+     * The src of the &lt;content&gt; tag, or "index.html" if there isn't one.
+     */
+    public String getContentSrc() {
+        return contentSrc;
+    }
+
+    /**
+     * The content src and &lt;allow-navigation&gt; hrefs.
+     */
+    public List<AllowListEntry> getAllowedNavigations() {
+        return allowedNavigations;
+    }
+
+    /**
+     * The &lt;allow-intent&gt; hrefs.
+     */
+    public List<AllowListEntry> getAllowedIntents() {
+        return allowedIntents;
+    }
+
+    /**
+     * The &lt;access&gt; origins.
+     */
+    public List<AllowListEntry> getAllowedRequests() {
+        return allowedRequests;
+    }
+}
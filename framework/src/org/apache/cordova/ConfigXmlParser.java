@@ -22,6 +22,7 @@ package org.apache.cordova;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.xmlpull.v1.XmlPullParser;
@@ -40,6 +41,10 @@ public class ConfigXmlParser {
     private String contentSrc;
     private CordovaPreferences prefs = new CordovaPreferences();
     private ArrayList<PluginEntry> pluginEntries = new ArrayList<PluginEntry>(20);
+    private ArrayList<ConfigXmlData.AllowListEntry> allowedNavigations = new ArrayList<ConfigXmlData.AllowListEntry>();
+    private ArrayList<ConfigXmlData.AllowListEntry> allowedIntents = new ArrayList<ConfigXmlData.AllowListEntry>();
+    private ArrayList<ConfigXmlData.AllowListEntry> allowedRequests = new ArrayList<ConfigXmlData.AllowListEntry>();
+    private ConfigXmlData configXmlData;
 
     public CordovaPreferences getPreferences() {
         return prefs;
@@ -57,6 +62,18 @@ public class ConfigXmlParser {
         return launchUrl;
     }
 
+    /**
+     * Returns an immutable copy of what has been parsed, including the allow list
+     * entries that AllowListPlugin reads.
+     */
+    public ConfigXmlData getConfigXmlData() {
+        if (configXmlData == null) {
+            configXmlData = new ConfigXmlData(prefs.getAll(), pluginEntries, contentSrc,
+                    allowedNavigations, allowedIntents, allowedRequests);
+        }
+        return configXmlData;
+    }
+
     public void parse(Context action) {
         // First checking the class namespace for config.xml
         int id = action.getResources().getIdentifier("config", "xml", action.getClass().getPackage().getName());
@@ -69,6 +86,16 @@ public class ConfigXmlParser {
             }
         }
 
+        // Subclasses may want to see every tag, so only this class skips the XML.
+        boolean useCache = getClass() == ConfigXmlParser.class;
+        if (useCache) {
+            ConfigXmlData data = ConfigXmlData.getCached(id);
+            if (data != null) {
+                load(data);
+                return;
+            }
+        }
+
         pluginEntries.add(
             new PluginEntry(
                 AllowListPlugin.PLUGIN_NAME,
@@ -94,6 +121,21 @@ public class ConfigXmlParser {
         );
 
         parse(action.getResources().getXml(id));
+        if (useCache) {
+            ConfigXmlData.setCached(id, getConfigXmlData());
+        }
+    }
+
+    private void load(ConfigXmlData data) {
+        for (Map.Entry<String, String> preference : data.getPreferences().entrySet()) {
+            prefs.set(preference.getKey(), preference.getValue());
+        }
+        pluginEntries.addAll(data.getPluginEntries());
+        contentSrc = data.getContentSrc();
+        allowedNavigations.addAll(data.getAllowedNavigations());
+        allowedIntents.addAll(data.getAllowedIntents());
+        allowedRequests.addAll(data.getAllowedRequests());
+        configXmlData = data;
     }
 
     boolean insideFeature = false;
@@ -121,6 +163,7 @@ public class ConfigXmlParser {
         }
 
         onPostParse();
+        configXmlData = null;
     }
 
     private void onPostParse() {
@@ -159,11 +202,38 @@ public class ConfigXmlParser {
             String src = xml.getAttributeValue(null, "src");
             if (src != null) {
                 contentSrc = src;
+                allowedNavigations.add(new ConfigXmlData.AllowListEntry(src, false));
             } else {
                 // Default
                 contentSrc = DEFAULT_CONTENT_SRC;
             }
         }
+        else if (strNode.equals("allow-navigation")) {
+            String origin = xml.getAttributeValue(null, "href");
+            if ("*".equals(origin)) {
+                allowedNavigations.add(new ConfigXmlData.AllowListEntry("http://*/*", false));
+                allowedNavigations.add(new ConfigXmlData.AllowListEntry("https://*/*", false));
+                allowedNavigations.add(new ConfigXmlData.AllowListEntry("data:*", false));
+            } else if (origin != null) {
+                allowedNavigations.add(new ConfigXmlData.AllowListEntry(origin, false));
+            }
+        }
+        else if (strNode.equals("allow-intent")) {
+            String origin = xml.getAttributeValue(null, "href");
+            if (origin != null) {
+                allowedIntents.add(new ConfigXmlData.AllowListEntry(origin, false));
+            }
+        }
+        else if (strNode.equals("access")) {
+            String origin = xml.getAttributeValue(null, "origin");
+            if ("*".equals(origin)) {
+                allowedRequests.add(new ConfigXmlData.AllowListEntry("http://*/*", false));
+                allowedRequests.add(new ConfigXmlData.AllowListEntry("https://*/*", false));
+            } else if (origin != null) {
+                String subdomains = xml.getAttributeValue(null, "subdomains");
+                allowedRequests.add(new ConfigXmlData.AllowListEntry(origin, "true".equalsIgnoreCase(subdomains)));
+            }
+        }
     }
 
     public void handleEndTag(XmlPullParser xml) {
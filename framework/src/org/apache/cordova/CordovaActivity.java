@@ -161,6 +161,9 @@ public class CordovaActivity extends AppCompatActivity {
         if (savedInstanceState != null) {
             cordovaInterface.restoreInstanceState(savedInstanceState);
         }
+
+        // Reads the assets that the last launch's page needed while init() sets up the WebView.
+        AssetPrefetchProfile.start(this, preferences, cordovaInterface.getThreadPool());
     }
 
     protected void init() {
@@ -21,93 +21,393 @@ package org.apache.cordova;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import android.util.Base64;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public class CordovaArgs {
+    private static final String LOG_TAG = "CordovaArgs";
+    // Stands in for values of rawArgs that haven't been parsed yet.
+    private static final Object UNPARSED = new Object();
+
     private JSONArray baseArgs;
+    private String rawArgs;
+    private int[] valueStarts;
+    private int[] valueEnds;
+    // ArrayBuffer arguments that the bridge received as binary, by index.
+    private byte[][] arrayBuffers;
 
     public CordovaArgs(JSONArray args) {
         this.baseArgs = args;
     }
 
+    /**
+     * Creates args that are parsed lazily from the exec() arguments in JSON form.
+     * Only the bounds of each value are found up front, and a value is parsed the
+     * first time it is accessed.
+     *
+     * @throws JSONException if rawArgs isn't a JSON array.
+     */
+    public CordovaArgs(String rawArgs) throws JSONException {
+        this(rawArgs, null);
+    }
+
+    /**
+     * Creates args like CordovaArgs(String), for bridges that receive ArrayBuffer
+     * arguments as binary. A non-null arrayBuffers[i] is the value of argument i, and is
+     * returned by getArrayBuffer(i) without being copied. Other accessors see it as the
+     * Base64 string that the other bridges send.
+     */
+    public CordovaArgs(String rawArgs, byte[][] arrayBuffers) throws JSONException {
+        this.rawArgs = rawArgs;
+        this.arrayBuffers = arrayBuffers;
+        scan();
+    }
+
+    /**
+     * Returns the args with the value at index parsed.
+     */
+    private synchronized JSONArray args(int index) throws JSONException {
+        if (rawArgs != null && index >= 0 && index < valueStarts.length && baseArgs.opt(index) == UNPARSED) {
+            byte[] data = arrayBuffer(index);
+            if (data != null) {
+                baseArgs.put(index, Base64.encodeToString(data, Base64.NO_WRAP));
+            } else {
+                baseArgs.put(index, new JSONTokener(rawArgs.substring(valueStarts[index], valueEnds[index])).nextValue());
+            }
+        }
+        return baseArgs;
+    }
+
+    private byte[] arrayBuffer(int index) {
+        return arrayBuffers != null && index >= 0 && index < arrayBuffers.length ? arrayBuffers[index] : null;
+    }
+
+    private JSONArray optArgs(int index) {
+        try {
+            return args(index);
+        } catch (JSONException e) {
+            // The array was checked by the constructor, so only this value is malformed.
+            LOG.e(LOG_TAG, "Malformed argument " + index, e);
+            return new JSONArray();
+        }
+    }
+
+    /**
+     * Finds the bounds of each value in rawArgs without parsing them.
+     */
+    private void scan() throws JSONException {
+        String raw = rawArgs;
+        int len = raw.length();
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int count = 0;
+        int pos = skipWhitespace(raw, 0);
+        if (pos >= len || raw.charAt(pos) != '[') {
+            throw new JSONException("Expected a JSON array: " + raw);
+        }
+        pos = skipWhitespace(raw, pos + 1);
+        if (pos < len && raw.charAt(pos) == ']') {
+            pos++;
+        } else {
+            while (true) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = pos;
+                pos = skipValue(raw, pos);
+                ends[count++] = pos;
+                pos = skipWhitespace(raw, pos);
+                if (pos >= len) {
+                    throw new JSONException("Unterminated array: " + raw);
+                }
+                char c = raw.charAt(pos++);
+                if (c == ']') {
+                    break;
+                } else if (c != ',') {
+                    throw new JSONException("Expected ',' or ']' at " + (pos - 1) + ": " + raw);
+                }
+                pos = skipWhitespace(raw, pos);
+            }
+        }
+        if (skipWhitespace(raw, pos) != len) {
+            throw new JSONException("Unexpected data after array: " + raw);
+        }
+        JSONArray args = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            args.put(UNPARSED);
+        }
+        valueStarts = Arrays.copyOf(starts, count);
+        valueEnds = Arrays.copyOf(ends, count);
+        baseArgs = args;
+    }
+
+    private static int skipWhitespace(String raw, int pos) {
+        while (pos < raw.length() && Character.isWhitespace(raw.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the index just past the value (string, array, object or literal) at pos.
+     */
+    private static int skipValue(String raw, int pos) throws JSONException {
+        int len = raw.length();
+        int depth = 0;
+        int start = pos;
+        while (pos < len) {
+            char c = raw.charAt(pos);
+            if (c == '"') {
+                pos = skipString(raw, pos);
+                if (depth == 0) {
+                    return pos;
+                }
+                continue;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                if (depth == 0) {
+                    break;
+                }
+                if (--depth == 0) {
+                    return pos + 1;
+                }
+            } else if (depth == 0 && (c == ',' || Character.isWhitespace(c))) {
+                break;
+            }
+            pos++;
+        }
+        if (depth != 0 || pos == start) {
+            throw new JSONException("Malformed value at " + start + ": " + raw);
+        }
+        return pos;
+    }
+
+    private static int skipString(String raw, int pos) throws JSONException {
+        int len = raw.length();
+        for (pos++; pos < len; pos++) {
+            char c = raw.charAt(pos);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '"') {
+                return pos + 1;
+            }
+        }
+        throw new JSONException("Unterminated string: " + raw);
+    }
+
 
     // Pass through the basics to the base args.
     public Object get(int index) throws JSONException {
-        return baseArgs.get(index);
+        return args(index).get(index);
     }
 
     public boolean getBoolean(int index) throws JSONException {
-        return baseArgs.getBoolean(index);
+        return args(index).getBoolean(index);
     }
 
     public double getDouble(int index) throws JSONException {
-        return baseArgs.getDouble(index);
+        return args(index).getDouble(index);
     }
 
     public int getInt(int index) throws JSONException {
-        return baseArgs.getInt(index);
+        return args(index).getInt(index);
     }
 
     public JSONArray getJSONArray(int index) throws JSONException {
-        return baseArgs.getJSONArray(index);
+        return args(index).getJSONArray(index);
     }
 
     public JSONObject getJSONObject(int index) throws JSONException {
-        return baseArgs.getJSONObject(index);
+        return args(index).getJSONObject(index);
     }
 
     public long getLong(int index) throws JSONException {
-        return baseArgs.getLong(index);
+        return args(index).getLong(index);
     }
 
     public String getString(int index) throws JSONException {
-        return baseArgs.getString(index);
+        return args(index).getString(index);
     }
 
 
     public Object opt(int index) {
-        return baseArgs.opt(index);
+        return optArgs(index).opt(index);
     }
 
     public boolean optBoolean(int index) {
-        return baseArgs.optBoolean(index);
+        return optArgs(index).optBoolean(index);
     }
 
     public double optDouble(int index) {
-        return baseArgs.optDouble(index);
+        return optArgs(index).optDouble(index);
     }
 
     public int optInt(int index) {
-        return baseArgs.optInt(index);
+        return optArgs(index).optInt(index);
     }
 
     public JSONArray optJSONArray(int index) {
-        return baseArgs.optJSONArray(index);
+        return optArgs(index).optJSONArray(index);
     }
 
     public JSONObject optJSONObject(int index) {
-        return baseArgs.optJSONObject(index);
+        return optArgs(index).optJSONObject(index);
     }
 
     public long optLong(int index) {
-        return baseArgs.optLong(index);
+        return optArgs(index).optLong(index);
     }
 
     public String optString(int index) {
-        return baseArgs.optString(index);
+        return optArgs(index).optString(index);
     }
 
     public boolean isNull(int index) {
-        return baseArgs.isNull(index);
+        return optArgs(index).isNull(index);
     }
 
 
     // The interesting custom helpers.
     public byte[] getArrayBuffer(int index) throws JSONException {
-        String encoded = baseArgs.getString(index);
+        byte[] data = arrayBuffer(index);
+        if (data != null) {
+            return data;
+        }
+        if (isRawString(index)) {
+            ByteBuffer dest = ByteBuffer.allocate(getArrayBufferLength(index));
+            decodeRawBase64(index, dest);
+            return dest.array();
+        }
+        String encoded = args(index).getString(index);
         return Base64.decode(encoded, Base64.DEFAULT);
     }
-}
 
+    /**
+     * Decodes the Base64 string at index into dest, starting at its position.
+     * Values that haven't been parsed are decoded straight from the raw JSON, so
+     * neither the string nor an intermediate byte[] is created.
+     *
+     * @return The number of bytes written.
+     * @throws java.nio.BufferOverflowException if dest has less than
+     *         getArrayBufferLength(index) bytes remaining.
+     */
+    public int getArrayBuffer(int index, ByteBuffer dest) throws JSONException {
+        if (arrayBuffer(index) == null && isRawString(index)) {
+            return decodeRawBase64(index, dest);
+        }
+        byte[] data = getArrayBuffer(index);
+        dest.put(data);
+        return data.length;
+    }
 
+    /**
+     * Returns the number of bytes getArrayBuffer(index) decodes to.
+     */
+    public int getArrayBufferLength(int index) throws JSONException {
+        if (arrayBuffer(index) == null && isRawString(index)) {
+            int chars = 0;
+            int end = valueEnds[index] - 1;
+            for (int pos = valueStarts[index] + 1; pos < end; pos++) {
+                char c = rawArgs.charAt(pos);
+                if (c == '\\') {
+                    c = rawArgs.charAt(++pos);
+                    if (c == 'u') {
+                        c = (char) Integer.parseInt(rawArgs.substring(pos + 1, pos + 5), 16);
+                        pos += 4;
+                    } else if (c != '/') {
+                        continue;
+                    }
+                }
+                if (c == '=') {
+                    break;
+                }
+                if (base64Value(c) >= 0) {
+                    chars++;
+                }
+            }
+            return chars * 6 / 8;
+        }
+        return getArrayBuffer(index).length;
+    }
+
+    private synchronized boolean isRawString(int index) throws JSONException {
+        if (rawArgs == null) {
+            return false;
+        }
+        return index >= 0 && index < valueStarts.length && baseArgs.opt(index) == UNPARSED
+                && rawArgs.charAt(valueStarts[index]) == '"';
+    }
+
+    /**
+     * Decodes like Base64.decode(s, Base64.DEFAULT): characters outside the alphabet are
+     * skipped, and misplaced padding or a dangling character is an error.
+     */
+    private int decodeRawBase64(int index, ByteBuffer dest) {
+        int start = dest.position();
+        int bits = 0;
+        int buffer = 0;
+        // Characters of the current 4 character group, then 4 or 5 once padding is read.
+        int state = 0;
+        int end = valueEnds[index] - 1;
+        for (int pos = valueStarts[index] + 1; pos < end; pos++) {
+            char c = rawArgs.charAt(pos);
+            if (c == '\\') {
+                // JSON escapes: "\/" is a '/', and "\n" etc. are line breaks that Base64 ignores.
+                c = rawArgs.charAt(++pos);
+                if (c == 'u') {
+                    c = (char) Integer.parseInt(rawArgs.substring(pos + 1, pos + 5), 16);
+                    pos += 4;
+                } else if (c != '/') {
+                    continue;
+                }
+            }
+            int value = base64Value(c);
+            if (c == '=') {
+                if (state == 2) {
+                    // Expect exactly one more.
+                    state = 4;
+                } else if (state == 3 || state == 4) {
+                    state = 5;
+                } else {
+                    throw new IllegalArgumentException("bad base-64");
+                }
+            } else if (value >= 0) {
+                if (state > 3) {
+                    throw new IllegalArgumentException("bad base-64");
+                }
+                state = (state + 1) % 4;
+                buffer = (buffer << 6) | value;
+                bits += 6;
+                if (bits >= 8) {
+                    bits -= 8;
+                    dest.put((byte) (buffer >> bits));
+                }
+            }
+        }
+        if (state == 1 || state == 4) {
+            throw new IllegalArgumentException("bad base-64");
+        }
+        return dest.position() - start;
+    }
+
+    private static int base64Value(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+') {
+            return 62;
+        } else if (c == '/') {
+            return 63;
+        }
+        return -1;
+    }
+}
@@ -35,6 +35,8 @@ public class CordovaBridge {
     private PluginManager pluginManager;
     private NativeToJsMessageQueue jsMessageQueue;
     private volatile int expectedBridgeSecret = -1; // written by UI thread, read by JS thread.
+    private volatile int preferredNativeToJsBridgeMode = -1;
+    private volatile boolean execBatchingEnabled;
 
     public CordovaBridge(PluginManager pluginManager, NativeToJsMessageQueue jsMessageQueue) {
         this.pluginManager = pluginManager;
@@ -50,13 +52,16 @@ public class CordovaBridge {
         if (arguments == null) {
             return "@Null arguments.";
         }
+        return exec(service, action, callbackId, arguments, null);
+    }
 
+    private String exec(String service, String action, String callbackId, String arguments, byte[][] arrayBuffers) {
         jsMessageQueue.setPaused(true);
         try {
             // Tell the resourceApi what thread the JS is running on.
             CordovaResourceApi.jsThread = Thread.currentThread();
 
-            pluginManager.exec(service, action, callbackId, arguments);
+            pluginManager.exec(service, action, callbackId, arguments, arrayBuffers);
             String ret = null;
             if (!NativeToJsMessageQueue.DISABLE_EXEC_CHAINING) {
                 ret = jsMessageQueue.popAndEncode(false);
@@ -70,6 +75,51 @@ public class CordovaBridge {
         }
     }
 
+    /**
+     * Runs the exec() calls that exec.js collected within one JS tick in a single bridge crossing.
+     *
+     * @param calls     JSON array of [service, action, callbackId, argsJson] arrays.
+     * @return          The messages produced by all of the calls, encoded as by popAndEncode().
+     */
+    public String jsExecBatch(int bridgeSecret, String calls) throws JSONException, IllegalAccessException {
+        if (!verifySecret("execBatch()", bridgeSecret)) {
+            return null;
+        }
+        // See jsExec().
+        if (calls == null) {
+            return "@Null arguments.";
+        }
+        JSONArray batch = new JSONArray(calls);
+
+        jsMessageQueue.setPaused(true);
+        try {
+            // Tell the resourceApi what thread the JS is running on.
+            CordovaResourceApi.jsThread = Thread.currentThread();
+
+            for (int i = 0; i < batch.length(); i++) {
+                JSONArray call = batch.optJSONArray(i);
+                String callbackId = call == null ? null : call.optString(2, null);
+                try {
+                    pluginManager.exec(call.getString(0), call.getString(1), call.getString(2), call.getString(3));
+                } catch (Throwable e) {
+                    // Don't let one bad call drop the rest of the batch, and still answer it.
+                    LOG.e(LOG_TAG, "Call " + i + " of execBatch() failed", e);
+                    if (callbackId != null) {
+                        PluginResult.Status status = e instanceof JSONException ? PluginResult.Status.JSON_EXCEPTION : PluginResult.Status.ERROR;
+                        jsMessageQueue.addPluginResult(new PluginResult(status), callbackId);
+                    }
+                }
+            }
+            String ret = null;
+            if (!NativeToJsMessageQueue.DISABLE_EXEC_CHAINING) {
+                ret = jsMessageQueue.popAndEncode(false);
+            }
+            return ret;
+        } finally {
+            jsMessageQueue.setPaused(false);
+        }
+    }
+
     public void jsSetNativeToJsBridgeMode(int bridgeSecret, int value) throws IllegalAccessException {
         if (!verifySecret("setNativeToJsBridgeMode()", bridgeSecret)) {
             return;
@@ -84,6 +134,70 @@ public class CordovaBridge {
         return jsMessageQueue.popAndEncode(fromOnlineEvent);
     }
 
+    /**
+     * Called by transports that identify the sending page by its origin (such as
+     * WebViewCompat.addWebMessageListener) rather than by the bridge secret.
+     */
+    public void originInit(String origin, int bridgeMode) {
+        // Trust only pages which the app would have been allowed to navigate to anyway.
+        if (isOriginAllowed(origin)) {
+            jsMessageQueue.setBridgeMode(bridgeMode);
+        } else {
+            LOG.e(LOG_TAG, "gap_init called from restricted origin: " + origin);
+        }
+    }
+
+    public String originExec(String origin, String service, String action, String callbackId, String arguments) throws IllegalAccessException {
+        return originExec(origin, service, action, callbackId, arguments, null);
+    }
+
+    /**
+     * @param arrayBuffers  ArrayBuffer arguments received as binary. See PluginManager.exec().
+     */
+    public String originExec(String origin, String service, String action, String callbackId, String arguments, byte[][] arrayBuffers) throws IllegalAccessException {
+        if (!verifyOrigin("exec()", origin)) {
+            return null;
+        }
+        return exec(service, action, callbackId, arguments, arrayBuffers);
+    }
+
+    public void originSetNativeToJsBridgeMode(String origin, int value) throws IllegalAccessException {
+        if (!verifyOrigin("setNativeToJsBridgeMode()", origin)) {
+            return;
+        }
+        jsMessageQueue.setBridgeMode(value);
+    }
+
+    public String originRetrieveJsMessages(String origin, boolean fromOnlineEvent) throws IllegalAccessException {
+        if (!verifyOrigin("retrieveJsMessages()", origin)) {
+            return null;
+        }
+        return jsMessageQueue.popAndEncode(fromOnlineEvent);
+    }
+
+    /**
+     * Returns whether a page from the origin may use the bridge. Transports can check
+     * this before taking in any of a message's data.
+     */
+    public boolean isOriginAllowed(String origin) {
+        // Origins have no path, while the default policy matches the launch URL prefix.
+        return origin != null && pluginManager.shouldAllowBridgeAccess(origin + "/");
+    }
+
+    private boolean verifyOrigin(String action, String origin) throws IllegalAccessException {
+        if (!jsMessageQueue.isBridgeEnabled()) {
+            LOG.d(LOG_TAG, action + " call made before bridge was enabled.");
+            return false;
+        }
+        if (!isOriginAllowed(origin)) {
+            // Unlike a wrong secret, this can't come from the page that owns the bridge,
+            // so reject the call without disabling the bridge.
+            LOG.e(LOG_TAG, "Bridge access attempt from restricted origin: " + origin);
+            throw new IllegalAccessException();
+        }
+        return true;
+    }
+
     private boolean verifySecret(String action, int bridgeSecret) throws IllegalAccessException {
         if (!jsMessageQueue.isBridgeEnabled()) {
             if (bridgeSecret == -1) {
@@ -120,6 +234,23 @@ public class CordovaBridge {
         return expectedBridgeSecret;
     }
 
+    /**
+     * Sets the native->JS bridge mode that exec.js switches to once the bridge is
+     * initialized. Engines call this for modes that not every engine registers, such as
+     * the web message mode, so that exec.js only asks for them where they exist.
+     */
+    public void setPreferredNativeToJsBridgeMode(int value) {
+        preferredNativeToJsBridgeMode = value;
+    }
+
+    /**
+     * Sets whether exec.js should send the exec() calls made within one JS tick together,
+     * through execBatch(). Only takes effect for pages that load afterwards.
+     */
+    public void setExecBatchingEnabled(boolean value) {
+        execBatchingEnabled = value;
+    }
+
     public void reset() {
         jsMessageQueue.reset();
         clearBridgeSecret();
@@ -143,6 +274,21 @@ public class CordovaBridge {
             }
             return "";
         }
+        // Runs several exec() calls.
+        else if (defaultValue != null && defaultValue.startsWith("gap_batch:")) {
+            try {
+                int bridgeSecret = Integer.parseInt(defaultValue.substring(10));
+                String r = jsExecBatch(bridgeSecret, message);
+                return r == null ? "" : r;
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            } catch (JSONException e) {
+                e.printStackTrace();
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+            return "";
+        }
         // Sets the native->JS bridge mode.
         else if (defaultValue != null && defaultValue.startsWith("gap_bridge_mode:")) {
             try {
@@ -173,9 +319,14 @@ public class CordovaBridge {
                 // Enable the bridge
                 int bridgeMode = Integer.parseInt(defaultValue.substring(9));
                 jsMessageQueue.setBridgeMode(bridgeMode);
-                // Tell JS the bridge secret.
+                // Tell JS the bridge secret, followed by the mode to switch to if there's a
+                // better one (-1 if not) and whether to batch exec() calls.
                 int secret = generateBridgeSecret();
-                return ""+secret;
+                int preferredMode = preferredNativeToJsBridgeMode;
+                if (execBatchingEnabled) {
+                    return secret + " " + preferredMode + " 1";
+                }
+                return preferredMode < 0 ? "" + secret : secret + " " + preferredMode;
             } else {
                 LOG.e(LOG_TAG, "gap_init called from restricted origin: " + origin);
             }
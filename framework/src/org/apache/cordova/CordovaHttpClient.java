@@ -0,0 +1,134 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.net.Uri;
+import android.net.http.HttpResponseCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opens the http and https connections that CordovaResourceApi makes. Replace it
+ * with CordovaResourceApi.setHttpClient() to use a different HTTP stack.
+ *
+ * <p>HttpURLConnection already keeps idle connections alive for reuse, as long as
+ * each response is read to the end or closed. Responses are only cached on disk if
+ * installResponseCache() was called, which the HttpCacheSizeKB preference does.
+ * The cache revalidates stale responses with their ETag or Last-Modified.</p>
+ */
+public class CordovaHttpClient {
+    private static final String LOG_TAG = "CordovaHttpClient";
+    private static final int MAX_MIME_TYPES = 64;
+
+    // Guarded by itself.
+    private final LinkedHashMap<String, String> mimeTypes = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_MIME_TYPES;
+        }
+    };
+
+    /**
+     * Installs a disk cache for every HttpURLConnection in the process, unless one is
+     * installed already. Does I/O, so call it in the background.
+     *
+     * @param maxSize   The most bytes of responses to keep.
+     */
+    public static void installResponseCache(File directory, long maxSize) {
+        if (HttpResponseCache.getInstalled() != null) {
+            return;
+        }
+        try {
+            HttpResponseCache.install(directory, maxSize);
+        } catch (IOException e) {
+            LOG.e(LOG_TAG, "Failed to install the HTTP response cache", e);
+        }
+    }
+
+    /**
+     * Opens a connection to a URL.
+     */
+    public HttpURLConnection openConnection(Uri uri) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(uri.toString()).openConnection();
+        conn.setUseCaches(true);
+        return conn;
+    }
+
+    /**
+     * Returns the MIME type of a URL, asking the server with a HEAD request the first time.
+     */
+    public String getMimeType(Uri uri) {
+        String url = uri.toString();
+        synchronized (mimeTypes) {
+            String mimeType = mimeTypes.get(url);
+            if (mimeType != null) {
+                return mimeType;
+            }
+        }
+        HttpURLConnection conn;
+        String mimeType;
+        try {
+            conn = openConnection(uri);
+            conn.setRequestMethod("HEAD");
+            mimeType = getMimeType(uri, conn);
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            // Close the empty body so the connection can be reused.
+            InputStream is = conn.getInputStream();
+            is.close();
+        } catch (IOException e) {
+            // Error responses have no body to close.
+            conn.disconnect();
+        }
+        return mimeType;
+    }
+
+    /**
+     * Returns the MIME type from the response to a request for uri, and remembers it
+     * for getMimeType() if the request succeeded. Error responses often have no type,
+     * or one that isn't the resource's.
+     */
+    public String getMimeType(Uri uri, HttpURLConnection conn) {
+        String mimeType = conn.getHeaderField("Content-Type");
+        if (mimeType == null) {
+            return null;
+        }
+        mimeType = mimeType.split(";")[0];
+        int responseCode;
+        try {
+            responseCode = conn.getResponseCode();
+        } catch (IOException e) {
+            return mimeType;
+        }
+        if (responseCode >= 200 && responseCode < 300) {
+            synchronized (mimeTypes) {
+                mimeTypes.put(uri.toString(), mimeType);
+            }
+        }
+        return mimeType;
+    }
+}
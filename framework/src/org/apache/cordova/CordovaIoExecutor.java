@@ -0,0 +1,145 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of threads for file and network I/O, shared by the framework and
+ * plugins through CordovaResourceApi.
+ *
+ * <p>CordovaInterface.getThreadPool() is unbounded, so plugins that each start their
+ * own I/O there can create a thread per request. This pool has a fixed number of
+ * threads that exit when idle, queues everything else, and keeps counts of how long
+ * tasks wait and run.</p>
+ */
+public class CordovaIoExecutor extends ThreadPoolExecutor {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static CordovaIoExecutor instance;
+
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final ThreadLocal<Long> startNanos = new ThreadLocal<Long>();
+
+    public CordovaIoExecutor(int threadCount) {
+        super(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CordovaIO-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the pool shared by every CordovaResourceApi in the process.
+     */
+    public static synchronized CordovaIoExecutor getInstance() {
+        if (instance == null) {
+            // I/O threads mostly wait, but more than a few just contend for the same disk.
+            int threadCount = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            instance = new CordovaIoExecutor(threadCount);
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a task on the pool. Cancelling the returned future interrupts the task if
+     * it has started, and otherwise keeps it from starting.
+     */
+    public <T> CompletableFuture<T> supply(final Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final Future<?> execution = submit(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    failedCount.incrementAndGet();
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                execution.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        final long enqueuedNanos = System.nanoTime();
+        super.execute(new Runnable() {
+            @Override
+            public void run() {
+                queueNanos.addAndGet(System.nanoTime() - enqueuedNanos);
+                command.run();
+            }
+        });
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        startNanos.set(System.nanoTime());
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        runNanos.addAndGet(System.nanoTime() - startNanos.get());
+        if (t != null) {
+            failedCount.incrementAndGet();
+        }
+    }
+
+    /** Returns how long tasks have spent waiting for a thread, in total. */
+    public long getTotalQueueMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(queueNanos.get());
+    }
+
+    /** Returns how long tasks have spent running, in total. */
+    public long getTotalRunMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(runNanos.get());
+    }
+
+    /** Returns the number of execute() and supply() tasks that threw. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
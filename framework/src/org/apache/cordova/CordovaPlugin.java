@@ -31,6 +31,7 @@ import android.content.res.Configuration;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.util.Base64;
 import android.webkit.RenderProcessGoneDetail;
 import android.webkit.WebView;
 
@@ -45,6 +46,8 @@ public class CordovaPlugin {
     public CordovaInterface cordova;
     protected CordovaPreferences preferences;
     private String serviceName;
+    private Boolean overridesJSONArrayExecute; // Set lazily.
+    private Boolean overridesRawArgsExecute; // Set lazily.
 
     /**
      * Call this after constructing to initialize the plugin.
@@ -78,6 +81,33 @@ public class CordovaPlugin {
     protected void pluginInitialize() {
     }
 
+    /**
+     * Return true if initialize() and pluginInitialize() may run on a background thread.
+     *
+     * <p>When an onload plugin returns true, PluginManager initializes it on
+     * CordovaInterface.getThreadPool(), alongside other such plugins and the first page
+     * load. exec() calls, getPlugin() and lifecycle events wait for it to finish. URL
+     * hooks, onMessage(), onActivityResult() and the other WebView and permission
+     * callbacks don't wait, so a plugin that overrides any of them is initialized on the
+     * calling thread even if it returns true.</p>
+     *
+     * <p>This is called before privateInitialize(), so the plugin's fields aren't set.</p>
+     */
+    public boolean isInitializationThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Returns the services whose onload plugins must finish initializing before this
+     * plugin is initialized in the background, or null. If one of them isn't also
+     * initialized in the background, this plugin is initialized on the calling thread.
+     *
+     * <p>This is called before privateInitialize(), so the plugin's fields aren't set.</p>
+     */
+    public String[] getInitializationDependencies() {
+        return null;
+    }
+
     /**
      * @return the plugin's service name (what you'd use when calling pluginManger.getPlugin())
      */
@@ -103,8 +133,57 @@ public class CordovaPlugin {
      * @return                Whether the action was valid.
      */
     public boolean execute(String action, String rawArgs, CallbackContext callbackContext) throws JSONException {
-        JSONArray args = new JSONArray(rawArgs);
-        return execute(action, args, callbackContext);
+        if (overridesJSONArrayExecute()) {
+            JSONArray args = new JSONArray(rawArgs);
+            return execute(action, args, callbackContext);
+        }
+        // Nothing reads a JSONArray, so parse only the arguments that the plugin asks for.
+        return execute(action, new CordovaArgs(rawArgs), callbackContext);
+    }
+
+    private boolean overridesJSONArrayExecute() {
+        if (overridesJSONArrayExecute == null) {
+            overridesJSONArrayExecute = overridesExecute(JSONArray.class);
+        }
+        return overridesJSONArrayExecute;
+    }
+
+    private boolean overridesRawArgsExecute() {
+        if (overridesRawArgsExecute == null) {
+            overridesRawArgsExecute = overridesExecute(String.class);
+        }
+        return overridesRawArgsExecute;
+    }
+
+    private boolean overridesExecute(Class<?> argsType) {
+        try {
+            return getClass().getMethod("execute", String.class, argsType, CallbackContext.class)
+                    .getDeclaringClass() != CordovaPlugin.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Executes the request for bridges that receive ArrayBuffer arguments as binary.
+     * A non-null arrayBuffers[i] is the value of argument i. Plugins that override the
+     * String or JSONArray execute methods get these as Base64 strings, like the other
+     * bridges send them.
+     */
+    boolean execute(String action, String rawArgs, byte[][] arrayBuffers, CallbackContext callbackContext) throws JSONException {
+        if (arrayBuffers == null) {
+            return execute(action, rawArgs, callbackContext);
+        }
+        if (overridesRawArgsExecute() || overridesJSONArrayExecute()) {
+            JSONArray args = new JSONArray(rawArgs);
+            for (int i = 0; i < arrayBuffers.length; i++) {
+                if (arrayBuffers[i] != null) {
+                    args.put(i, Base64.encodeToString(arrayBuffers[i], Base64.NO_WRAP));
+                }
+            }
+            return overridesRawArgsExecute() ? execute(action, args.toString(), callbackContext) : execute(action, args, callbackContext);
+        }
+        return execute(action, new CordovaArgs(rawArgs, arrayBuffers), callbackContext);
     }
 
     /**
@@ -23,15 +23,39 @@ import androidx.webkit.WebViewAssetLoader;
 
 /**
  * Wrapper class for path and handler
+ *
+ * <p>A handler with a path prefix is only asked about paths that start with it,
+ * and handlers with longer prefixes are asked first. Handlers without a prefix
+ * are asked about every path, after all of the prefixed handlers that match.
+ * Either way, the handler receives the whole path, without the leading "/".</p>
  */
 public class CordovaPluginPathHandler {
 
+    private final String pathPrefix;
     private final WebViewAssetLoader.PathHandler handler;
 
     public  CordovaPluginPathHandler(WebViewAssetLoader.PathHandler handler) {
+        this("", handler);
+    }
+
+    /**
+     * @param pathPrefix    The start of the paths to handle, such as "plugins/my-plugin/".
+     *                      A leading "/" is ignored.
+     */
+    public CordovaPluginPathHandler(String pathPrefix, WebViewAssetLoader.PathHandler handler) {
+        if (pathPrefix == null) {
+            pathPrefix = "";
+        } else if (pathPrefix.startsWith("/")) {
+            pathPrefix = pathPrefix.substring(1);
+        }
+        this.pathPrefix = pathPrefix;
         this.handler = handler;
     }
 
+    public String getPathPrefix() {
+        return pathPrefix;
+    }
+
     public WebViewAssetLoader.PathHandler getPathHandler() {
         return handler;
     }
@@ -31,13 +31,17 @@ import android.os.Bundle;
 public class CordovaPreferences {
     private HashMap<String, String> prefs = new HashMap<String, String>(20);
     private Bundle preferencesBundleExtras;
+    // Built and cleared under this object's lock, so a snapshot of old values isn't
+    // stored after set().
+    private volatile PreferenceSnapshot snapshot;
 
     public void setPreferencesBundle(Bundle extras) {
         preferencesBundleExtras = extras;
     }
 
-    public void set(String name, String value) {
+    public synchronized void set(String name, String value) {
         prefs.put(name.toLowerCase(Locale.ENGLISH), value);
+        snapshot = null;
     }
 
     public void set(String name, boolean value) {
@@ -52,6 +56,26 @@ public class CordovaPreferences {
         set(name, "" + value);
     }
 
+    /**
+     * Returns a frozen copy of the preferences that is safe to read from any thread
+     * and doesn't re-parse values. Like the get methods, it holds the values passed
+     * to set(). A new copy is made after set() is called, so changes made through
+     * getAll() aren't seen by an existing copy.
+     */
+    public PreferenceSnapshot getSnapshot() {
+        PreferenceSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = new PreferenceSnapshot(prefs);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
     public Map<String, String> getAll() {
         return prefs;
     }
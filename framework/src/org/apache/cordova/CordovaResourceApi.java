@@ -35,12 +35,15 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -94,12 +97,18 @@ public class CordovaResourceApi {
 
     private static final String[] LOCAL_FILE_PROJECTION = { "_data" };
 
+    // For copies that can't be done between file descriptors. Kept for reuse, since
+    // they're large enough to be worth not reallocating.
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final ArrayBlockingQueue<byte[]> copyBuffers = new ArrayBlockingQueue<byte[]>(4);
+
     public static Thread jsThread;
 
     private final AssetManager assetManager;
     private final ContentResolver contentResolver;
     private final PluginManager pluginManager;
     private boolean threadCheckingEnabled = true;
+    private CordovaHttpClient httpClient = new CordovaHttpClient();
 
 
     public CordovaResourceApi(Context context, PluginManager pluginManager) {
@@ -116,6 +125,18 @@ public class CordovaResourceApi {
         return threadCheckingEnabled;
     }
 
+    /**
+     * Replaces what opens http and https connections, such as with one that uses a
+     * different HTTP stack.
+     */
+    public void setHttpClient(CordovaHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public CordovaHttpClient getHttpClient() {
+        return httpClient;
+    }
+
 
     public static int getUriType(Uri uri) {
         assertNonRelative(uri);
@@ -189,8 +210,15 @@ public class CordovaResourceApi {
     public String getMimeType(Uri uri) {
         switch (getUriType(uri)) {
             case URI_TYPE_FILE:
-            case URI_TYPE_ASSET:
                 return getMimeTypeFromPath(uri.getPath());
+            case URI_TYPE_ASSET: {
+                String assetPath = uri.getPath().substring(15);
+                AssetManifest.Entry entry = getAssetManifestEntry(assetPath);
+                if (entry != null && entry.getMimeType() != null) {
+                    return entry.getMimeType();
+                }
+                return getMimeTypeFromPath(uri.getPath());
+            }
             case URI_TYPE_CONTENT:
             case URI_TYPE_RESOURCE:
                 return contentResolver.getType(uri);
@@ -199,17 +227,7 @@ public class CordovaResourceApi {
             }
             case URI_TYPE_HTTP:
             case URI_TYPE_HTTPS: {
-                try {
-                    HttpURLConnection conn = (HttpURLConnection)new URL(uri.toString()).openConnection();
-                    conn.setDoInput(false);
-                    conn.setRequestMethod("HEAD");
-                    String mimeType = conn.getHeaderField("Content-Type");
-                    if (mimeType != null) {
-                        mimeType = mimeType.split(";")[0];
-                    }
-                    return mimeType;
-                } catch (IOException e) {
-                }
+                return httpClient.getMimeType(uri);
             }
         }
 
@@ -217,6 +235,11 @@ public class CordovaResourceApi {
     }
 
 
+    private AssetManifest.Entry getAssetManifestEntry(String assetPath) {
+        AssetManifest manifest = AssetManifest.getInstance(assetManager);
+        return manifest == null ? null : manifest.get(assetPath);
+    }
+
     //This already exists
     private String getMimeTypeFromPath(String path) {
         String extension = path;
@@ -270,6 +293,14 @@ public class CordovaResourceApi {
             }
             case URI_TYPE_ASSET: {
                 String assetPath = uri.getPath().substring(15);
+                AssetManifest manifest = AssetManifest.getInstance(assetManager);
+                AssetManifest.Entry entry = null;
+                if (manifest != null && manifest.covers(assetPath)) {
+                    entry = manifest.get(assetPath);
+                    if (entry == null) {
+                        throw new FileNotFoundException("Asset not found: " + assetPath);
+                    }
+                }
                 AssetFileDescriptor assetFd = null;
                 InputStream inputStream;
                 long length = -1;
@@ -280,9 +311,10 @@ public class CordovaResourceApi {
                 } catch (FileNotFoundException e) {
                     // Will occur if the file is compressed.
                     inputStream = assetManager.open(assetPath);
-                    length = inputStream.available();
+                    // available() isn't guaranteed to be the full length, so prefer the manifest's.
+                    length = entry != null ? entry.getSize() : inputStream.available();
                 }
-                String mimeType = getMimeTypeFromPath(assetPath);
+                String mimeType = entry != null && entry.getMimeType() != null ? entry.getMimeType() : getMimeTypeFromPath(assetPath);
                 return new OpenForReadResult(uri, inputStream, mimeType, length, assetFd);
             }
             case URI_TYPE_CONTENT:
@@ -302,13 +334,10 @@ public class CordovaResourceApi {
             }
             case URI_TYPE_HTTP:
             case URI_TYPE_HTTPS: {
-                HttpURLConnection conn = (HttpURLConnection)new URL(uri.toString()).openConnection();
+                HttpURLConnection conn = httpClient.openConnection(uri);
                 conn.setRequestProperty("Accept-Encoding", "gzip");
                 conn.setDoInput(true);
-                String mimeType = conn.getHeaderField("Content-Type");
-                if (mimeType != null) {
-                    mimeType = mimeType.split(";")[0];
-                }
+                String mimeType = httpClient.getMimeType(uri, conn);
                 int length = conn.getContentLength();
                 InputStream inputStream;
                 if ("gzip".equals(conn.getContentEncoding())) {
@@ -364,7 +393,7 @@ public class CordovaResourceApi {
 
     public HttpURLConnection createHttpConnection(Uri uri) throws IOException {
         assertBackgroundThread();
-        return (HttpURLConnection)new URL(uri.toString()).openConnection();
+        return httpClient.openConnection(uri);
     }
 
     // Copies the input to the output in the most efficient manner possible.
@@ -373,29 +402,43 @@ public class CordovaResourceApi {
         assertBackgroundThread();
         try {
             InputStream inputStream = input.inputStream;
+            // Files, and content URIs and uncompressed assets opened through an
+            // AssetFileDescriptor, all have FileInputStreams, and content URIs are written
+            // through FileOutputStreams.
             if (inputStream instanceof FileInputStream && outputStream instanceof FileOutputStream) {
                 FileChannel inChannel = ((FileInputStream)input.inputStream).getChannel();
                 FileChannel outChannel = ((FileOutputStream)outputStream).getChannel();
                 long offset = 0;
                 long length = input.length;
                 if (input.assetFd != null) {
+                    // The descriptor may be for a whole APK or a region of another file.
                     offset = input.assetFd.getStartOffset();
                 }
-                // transferFrom()'s 2nd arg is a relative position. Need to set the absolute
-                // position first.
-                inChannel.position(offset);
-                outChannel.transferFrom(inChannel, 0, length);
+                if (length < 0) {
+                    // AssetFileDescriptor.UNKNOWN_LENGTH means up to the end of the file.
+                    length = inChannel.size() - offset;
+                }
+                transfer(inChannel, offset, length, outChannel);
             } else {
-                final int BUFFER_SIZE = 8192;
-                byte[] buffer = new byte[BUFFER_SIZE];
-
-                for (;;) {
-                    int bytesRead = inputStream.read(buffer, 0, BUFFER_SIZE);
+                byte[] buffer = copyBuffers.poll();
+                if (buffer == null) {
+                    buffer = new byte[COPY_BUFFER_SIZE];
+                }
+                try {
+                    for (;;) {
+                        if (Thread.interrupted()) {
+                            // Cancelled by copyResourceAsync()'s caller.
+                            throw new InterruptedIOException();
+                        }
+                        int bytesRead = inputStream.read(buffer, 0, buffer.length);
 
-                    if (bytesRead <= 0) {
-                        break;
+                        if (bytesRead <= 0) {
+                            break;
+                        }
+                        outputStream.write(buffer, 0, bytesRead);
                     }
-                    outputStream.write(buffer, 0, bytesRead);
+                } finally {
+                    copyBuffers.offer(buffer);
                 }
             }
         } finally {
@@ -406,6 +449,24 @@ public class CordovaResourceApi {
         }
     }
 
+    /**
+     * Copies part of a file to the current position of another, in the kernel where
+     * possible.
+     */
+    private static void transfer(FileChannel inChannel, long offset, long length, FileChannel outChannel) throws IOException {
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            // transferTo() reads from an absolute position, and may copy less than asked.
+            long transferred = inChannel.transferTo(position, end - position, outChannel);
+            if (transferred <= 0) {
+                // The file is shorter than its descriptor said.
+                break;
+            }
+            position += transferred;
+        }
+    }
+
     public void copyResource(Uri sourceUri, OutputStream outputStream) throws IOException {
         copyResource(openForRead(sourceUri), outputStream);
     }
@@ -415,6 +476,71 @@ public class CordovaResourceApi {
         copyResource(openForRead(sourceUri), openOutputStream(dstUri));
     }
 
+    /**
+     * Returns the bounded I/O pool that the *Async() methods run on. Plugins should
+     * use it for their own file and network work rather than the unbounded
+     * CordovaInterface.getThreadPool().
+     */
+    public CordovaIoExecutor getIoExecutor() {
+        return CordovaIoExecutor.getInstance();
+    }
+
+    /**
+     * Like openForRead(), but runs on the I/O pool, so it can be called from any thread.
+     * The caller must close the result's stream.
+     */
+    public CompletableFuture<OpenForReadResult> openForReadAsync(final Uri uri) {
+        return getIoExecutor().supply(new Callable<OpenForReadResult>() {
+            @Override
+            public OpenForReadResult call() throws IOException {
+                OpenForReadResult result = openForRead(uri);
+                if (Thread.currentThread().isInterrupted()) {
+                    // Cancelled while opening, so nobody will close it.
+                    result.inputStream.close();
+                    throw new InterruptedIOException();
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Like copyResource(), but runs on the I/O pool. Cancelling the future stops the copy.
+     */
+    public CompletableFuture<Void> copyResourceAsync(final Uri sourceUri, final Uri dstUri) {
+        return getIoExecutor().supply(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                copyResource(sourceUri, dstUri);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Like getMimeType(), but runs on the I/O pool, since content providers may be slow to answer.
+     */
+    public CompletableFuture<String> getMimeTypeAsync(final Uri uri) {
+        return getIoExecutor().supply(new Callable<String>() {
+            @Override
+            public String call() {
+                return getMimeType(uri);
+            }
+        });
+    }
+
+    /**
+     * Like mapUriToFile(), but runs on the I/O pool, since content URIs need a query.
+     */
+    public CompletableFuture<File> mapUriToFileAsync(final Uri uri) {
+        return getIoExecutor().supply(new Callable<File>() {
+            @Override
+            public File call() {
+                return mapUriToFile(uri);
+            }
+        });
+    }
+
     private void assertBackgroundThread() {
         if (threadCheckingEnabled) {
             Thread curThread = Thread.currentThread();
@@ -484,13 +610,30 @@ public class CordovaResourceApi {
         public final String mimeType;
         public final long length;
         public final AssetFileDescriptor assetFd;
+        /** Where inputStream starts within the resource. Non-zero for slices. */
+        public final long offset;
 
         public OpenForReadResult(Uri uri, InputStream inputStream, String mimeType, long length, AssetFileDescriptor assetFd) {
+            this(uri, inputStream, mimeType, length, assetFd, 0);
+        }
+
+        public OpenForReadResult(Uri uri, InputStream inputStream, String mimeType, long length, AssetFileDescriptor assetFd, long offset) {
             this.uri = uri;
             this.inputStream = inputStream;
             this.mimeType = mimeType;
             this.length = length;
             this.assetFd = assetFd;
+            this.offset = offset;
+        }
+
+        /**
+         * Narrows this result to a byte range, such as one parsed from a Range header
+         * with ByteRange.parse(header, length). The stream is moved to the start of the
+         * range. For files, content URIs and assets stored uncompressed, that seeks the
+         * file descriptor instead of reading the bytes before it.
+         */
+        public OpenForReadResult slice(ByteRange range) throws IOException {
+            return new OpenForReadResult(uri, range.open(inputStream), mimeType, range.getLength(), assetFd, offset + range.start);
         }
     }
 }
@@ -34,6 +34,7 @@ import org.apache.cordova.engine.SystemWebViewEngine;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -104,9 +105,26 @@ public class CordovaWebViewImpl implements CordovaWebView {
         this.preferences = preferences;
         pluginManager = new PluginManager(this, this.cordova, pluginEntries);
         resourceApi = new CordovaResourceApi(engine.getView().getContext(), pluginManager);
-        nativeToJsMessageQueue = new NativeToJsMessageQueue();
+        final int httpCacheSizeKB = preferences.getInteger("HttpCacheSizeKB", 0);
+        if (httpCacheSizeKB > 0) {
+            final File httpCacheDir = new File(engine.getView().getContext().getCacheDir(), "cordova-http");
+            CordovaIoExecutor.getInstance().execute(new Runnable() {
+                @Override
+                public void run() {
+                    CordovaHttpClient.installResponseCache(httpCacheDir, httpCacheSizeKB * 1024L);
+                }
+            });
+        }
+        // A capacity > 0 switches plugin results over to the lock-free ring buffer.
+        nativeToJsMessageQueue = new NativeToJsMessageQueue(preferences.getInteger("NativeToJsRingBufferCapacity", 0));
+        nativeToJsMessageQueue.setEncodeOnEnqueue(preferences.getBoolean("NativeToJsEncodeOnEnqueue", false));
+        if (preferences.contains("NativeToJsFragmentSize")) {
+            nativeToJsMessageQueue.setFragmentSize(preferences.getInteger("NativeToJsFragmentSize", 0));
+        }
         nativeToJsMessageQueue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
-        nativeToJsMessageQueue.addBridgeMode(new NativeToJsMessageQueue.LoadUrlBridgeMode(engine, cordova));
+        NativeToJsMessageQueue.LoadUrlBridgeMode loadUrlBridgeMode = new NativeToJsMessageQueue.LoadUrlBridgeMode(engine, cordova);
+        loadUrlBridgeMode.setFlushWindow(preferences.getInteger("NativeToJsFlushWindow", NativeToJsMessageQueue.UiThreadBridgeMode.FLUSH_IMMEDIATELY));
+        nativeToJsMessageQueue.addBridgeMode(loadUrlBridgeMode);
 
         if (preferences.getBoolean("DisallowOverscroll", false)) {
             engine.getView().setOverScrollMode(View.OVER_SCROLL_NEVER);
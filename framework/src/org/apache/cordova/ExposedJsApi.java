@@ -23,6 +23,7 @@ import org.json.JSONException;
 
 /*
  * Any exposed Javascript API MUST implement these three things!
+ * exec() batching is in ExposedJsBatchApi.
  */
 public interface ExposedJsApi {
     public String exec(int bridgeSecret, String service, String action, String callbackId, String arguments) throws JSONException, IllegalAccessException;
@@ -0,0 +1,180 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves large assets that are stored uncompressed in the APK from memory-mapped
+ * regions of the APK.
+ *
+ * <p>Reading an asset stream copies it onto the heap a buffer at a time, every time
+ * it's loaded. A mapping is made once and shared by every stream of the asset, and
+ * its pages are backed by the page cache, so repeated loads of a large .wasm or
+ * video copy nothing.</p>
+ *
+ * <p>Only assets that are stored uncompressed can be mapped. The build leaves media
+ * files uncompressed, and the app template adds .wasm files.</p>
+ */
+public class MappedAssets {
+    private static final String LOG_TAG = "MappedAssets";
+
+    private final AssetManager assetManager;
+    private final long minSize;
+    private final ConcurrentHashMap<String, ByteBuffer> mappings = new ConcurrentHashMap<String, ByteBuffer>();
+    // Assets that are compressed, missing or too small.
+    private final Set<String> unmappable = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * @param minSize   Assets smaller than this many bytes aren't worth a mapping.
+     */
+    public MappedAssets(AssetManager assetManager, long minSize) {
+        this.assetManager = assetManager;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Opens a stream over the mapping of an asset.
+     *
+     * @param assetPath     The path of the asset, such as "www/app.wasm".
+     * @return The stream, or null if the asset can't or shouldn't be mapped.
+     */
+    public InputStream open(String assetPath) {
+        ByteBuffer mapping = mappings.get(assetPath);
+        if (mapping == null) {
+            if (unmappable.contains(assetPath)) {
+                return null;
+            }
+            try {
+                mapping = map(assetPath);
+            } catch (IOException e) {
+                mapping = null;
+            } catch (IllegalArgumentException e) {
+                // Thrown by FileChannel.map() for mappings it can't make, such as ones over 2 GB.
+                LOG.w(LOG_TAG, "Can't map " + assetPath, e);
+                mapping = null;
+            }
+            if (mapping == null) {
+                unmappable.add(assetPath);
+                return null;
+            }
+            ByteBuffer previous = mappings.putIfAbsent(assetPath, mapping);
+            if (previous != null) {
+                mapping = previous;
+            }
+        }
+        // Each stream gets its own position over the shared pages.
+        return new ByteBufferInputStream(mapping.duplicate());
+    }
+
+    /**
+     * Maps an asset, or returns null if it's too small or too large. Overridden by tests.
+     *
+     * @throws FileNotFoundException If the asset is compressed or doesn't exist.
+     */
+    protected ByteBuffer map(String assetPath) throws IOException {
+        AssetFileDescriptor assetFd = assetManager.openFd(assetPath);
+        try {
+            // A ByteBuffer can't hold more than Integer.MAX_VALUE bytes.
+            if (assetFd.getLength() < minSize || assetFd.getLength() > Integer.MAX_VALUE) {
+                return null;
+            }
+            FileInputStream in = new FileInputStream(assetFd.getFileDescriptor());
+            try {
+                // The mapping stays valid after the descriptor is closed.
+                FileChannel channel = in.getChannel();
+                LOG.d(LOG_TAG, "Mapping " + assetPath + " (" + assetFd.getLength() + " bytes)");
+                return channel.map(FileChannel.MapMode.READ_ONLY, assetFd.getStartOffset(), assetFd.getLength());
+            } finally {
+                in.close();
+            }
+        } finally {
+            assetFd.close();
+        }
+    }
+
+    /** Returns the number of assets that are mapped. */
+    public int getMappedCount() {
+        return mappings.size();
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+    }
+}
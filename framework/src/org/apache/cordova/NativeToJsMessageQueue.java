@@ -18,8 +18,19 @@
 */
 package org.apache.cordova;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Holds the list of messages to be sent to the WebView.
@@ -38,20 +49,36 @@ public class NativeToJsMessageQueue {
 
     // A hopefully reasonable upper limit of how much combined payload data
     // to send to the JavaScript in one shot.
-    // This currently only chops up on message boundaries.
-    // It may be useful to split and reassemble response messages someday.
-    private static int COMBINED_RESPONSE_CUTOFF = 16 * 1024 * 1024;
+    // This chops up on message boundaries. Messages larger than fragmentSize
+    // are split into fragments that exec.js reassembles.
+    private static final int COMBINED_RESPONSE_CUTOFF = 16 * 1024 * 1024;
+
+    // Fragments must be able to hold their two character header plus some data.
+    private static final int MIN_FRAGMENT_SIZE = 16;
+
+    /**
+     * Messages whose encoded length exceeds this are sent in pieces of at most
+     * this many characters, one piece per flush.
+     */
+    private volatile int fragmentSize = COMBINED_RESPONSE_CUTOFF;
 
     /**
      * When true, the active listener is not fired upon enqueue. When set to false,
      * the active listener will be fired if the queue is non-empty.
      */
-    private boolean paused;
+    private volatile boolean paused;
 
     /**
      * The list of JavaScript statements to be sent to JavaScript.
+     * Only accessed while holding the lock on this object.
      */
-    private final LinkedList<JsMessage> queue = new LinkedList<JsMessage>();
+    private final ArrayDeque<JsMessage> queue = new ArrayDeque<JsMessage>();
+
+    /**
+     * When non-null, producers publish into this lock-free buffer instead of
+     * taking the lock. The consumer moves them into {@link #queue} before encoding.
+     */
+    private final MessageRingBuffer ringBuffer;
 
     /**
      * The array of listeners that can be used to send messages to JS.
@@ -63,18 +90,73 @@ public class NativeToJsMessageQueue {
      * When disabled, all callbacks are dropped since they are assumed to be
      * relevant to the previous page.
      */
-    private BridgeMode activeBridgeMode;
+    private volatile BridgeMode activeBridgeMode;
+
+    /**
+     * Incremented by reset(), after the bridge is disabled. Lock-free producers tag each
+     * message with it before checking the bridge, so that a message that races with a
+     * reset and lands in the ring buffer afterwards is dropped rather than delivered to
+     * the next page.
+     */
+    private volatile int resetGeneration;
+
+    /**
+     * When true, plugin results are encoded by the thread that adds them rather than
+     * by the thread that flushes the queue.
+     */
+    private volatile boolean encodeOnEnqueue;
+
+    private final FlushStats flushStats = new FlushStats();
+
+    public NativeToJsMessageQueue() {
+        this(0);
+    }
+
+    /**
+     * @param ringBufferCapacity    When greater than zero, plugin results are enqueued through a
+     *                              bounded lock-free buffer of (at least) this many slots so that
+     *                              worker threads do not contend with the threads flushing the
+     *                              queue. When zero, every enqueue takes the queue lock.
+     */
+    public NativeToJsMessageQueue(int ringBufferCapacity) {
+        ringBuffer = ringBufferCapacity > 0 ? new MessageRingBuffer(ringBufferCapacity) : null;
+    }
 
     public void addBridgeMode(BridgeMode bridgeMode) {
         bridgeModes.add(bridgeMode);
     }
 
+    /**
+     * Sets whether plugin results are serialized on the calling thread in addPluginResult().
+     * This moves the encoding work (including string quoting) off the UI and JavaBridge
+     * threads, so the flush only has to concatenate already encoded messages.
+     */
+    public void setEncodeOnEnqueue(boolean value) {
+        encodeOnEnqueue = value;
+    }
+
+    /**
+     * @return statistics about how many messages are sent to JS per flush.
+     */
+    public FlushStats getFlushStats() {
+        return flushStats;
+    }
+
+    /**
+     * Sets the largest message (in encoded characters) that is sent to JS in one piece.
+     * Larger messages are split across several flushes, which caps the size of the
+     * strings built here and evaluated by the WebView.
+     */
+    public void setFragmentSize(int value) {
+        fragmentSize = Math.max(MIN_FRAGMENT_SIZE, value);
+    }
+
     public boolean isBridgeEnabled() {
         return activeBridgeMode != null;
     }
 
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return queue.isEmpty() && (ringBuffer == null || ringBuffer.isEmpty());
     }
 
     /**
@@ -91,7 +173,7 @@ public class NativeToJsMessageQueue {
                     activeBridgeMode = newMode;
                     if (newMode != null) {
                         newMode.reset();
-                        if (!paused && !queue.isEmpty()) {
+                        if (!paused && !isEmpty()) {
                             newMode.onNativeToJsMessageAvailable(this);
                         }
                     }
@@ -105,8 +187,29 @@ public class NativeToJsMessageQueue {
      */
     public void reset() {
         synchronized (this) {
+            drainRingBuffer();
             queue.clear();
             setBridgeMode(-1);
+            resetGeneration++;
+        }
+    }
+
+    /**
+     * Moves all messages published to the ring buffer onto the end of the queue.
+     * Must be called while holding the lock on this object.
+     */
+    private void drainRingBuffer() {
+        if (ringBuffer == null) {
+            return;
+        }
+        JsMessage message;
+        int generation = resetGeneration;
+        while ((message = ringBuffer.poll()) != null) {
+            if (message.resetGeneration == generation) {
+                queue.add(message);
+            } else {
+                LOG.d(LOG_TAG, "Dropping Native->JS message from before the bridge was reset");
+            }
         }
     }
 
@@ -135,12 +238,17 @@ public class NativeToJsMessageQueue {
                 return null;
             }
             activeBridgeMode.notifyOfFlush(this, fromOnlineEvent);
+            drainRingBuffer();
             if (queue.isEmpty()) {
                 return null;
             }
             int totalPayloadLen = 0;
             int numMessagesToSend = 0;
+            int maxMessageLength = fragmentSize;
             for (JsMessage message : queue) {
+                if (needsFragmenting(message, maxMessageLength)) {
+                    break;
+                }
                 int messageSize = calculatePackedMessageLength(message);
                 if (numMessagesToSend > 0 &&
                     COMBINED_RESPONSE_CUTOFF > 0 &&
@@ -151,14 +259,27 @@ public class NativeToJsMessageQueue {
                 totalPayloadLen += messageSize;
                 numMessagesToSend += 1;
             }
+            if (numMessagesToSend == 0) {
+                // The first message is too large, so send the next piece of it on its own.
+                String fragment = popFragment(maxMessageLength);
+                StringBuilder sb = new StringBuilder(fragment.length() + 12);
+                sb.append(fragment.length())
+                  .append(' ')
+                  .append(fragment);
+                if (!isEmpty()) {
+                    sb.append('*');
+                }
+                return sb.toString();
+            }
 
             StringBuilder sb = new StringBuilder(totalPayloadLen);
             for (int i = 0; i < numMessagesToSend; ++i) {
                 JsMessage message = queue.removeFirst();
                 packMessage(message, sb);
             }
+            flushStats.recordFlush(numMessagesToSend);
 
-            if (!queue.isEmpty()) {
+            if (!isEmpty()) {
                 // Attach a char to indicate that there are more messages pending.
                 sb.append('*');
             }
@@ -172,13 +293,18 @@ public class NativeToJsMessageQueue {
      */
     public String popAndEncodeAsJs() {
         synchronized (this) {
+            drainRingBuffer();
             int length = queue.size();
             if (length == 0) {
                 return null;
             }
             int totalPayloadLen = 0;
             int numMessagesToSend = 0;
+            int maxMessageLength = fragmentSize;
             for (JsMessage message : queue) {
+                if (needsFragmenting(message, maxMessageLength)) {
+                    break;
+                }
                 int messageSize = message.calculateEncodedLength() + 50; // overestimate.
                 if (numMessagesToSend > 0 &&
                     COMBINED_RESPONSE_CUTOFF > 0 &&
@@ -189,6 +315,22 @@ public class NativeToJsMessageQueue {
                 totalPayloadLen += messageSize;
                 numMessagesToSend += 1;
             }
+            if (numMessagesToSend == 0) {
+                // The first message is too large, so send the next piece of it on its own.
+                String fragment = JSONObject.quote(popFragment(maxMessageLength));
+                boolean morePending = !isEmpty();
+                StringBuilder sb = new StringBuilder(fragment.length() + (morePending ? 200 : 50));
+                if (morePending) {
+                    sb.append("try{");
+                }
+                sb.append("cordova.require('cordova/exec').processFragment(")
+                  .append(fragment)
+                  .append(");");
+                if (morePending) {
+                    sb.append("}finally{window.setTimeout(function(){cordova.require('cordova/exec').pollOnce();},0);}");
+                }
+                return sb.toString();
+            }
             boolean willSendAllMessages = numMessagesToSend == queue.size();
             StringBuilder sb = new StringBuilder(totalPayloadLen + (willSendAllMessages ? 0 : 100));
             // Wrap each statement in a try/finally so that if one throws it does
@@ -206,6 +348,7 @@ public class NativeToJsMessageQueue {
             if (!willSendAllMessages) {
                 sb.append("window.setTimeout(function(){cordova.require('cordova/exec').pollOnce();},0);");
             }
+            flushStats.recordFlush(numMessagesToSend);
             for (int i = willSendAllMessages ? 1 : 0; i < numMessagesToSend; ++i) {
                 sb.append('}');
             }
@@ -214,6 +357,59 @@ public class NativeToJsMessageQueue {
         }
     }
 
+    /**
+     * Pops a single message, encoded as by popAndEncode() but without the length prefix.
+     * Used by bridges that post each message separately.
+     *
+     * <p>When binaryPayloads is non-null, ArrayBuffer and binary string results are not
+     * Base64 encoded. Their bytes are appended to the list in order, and their payload is
+     * encoded as 'a' or 'b' without data. The bridge must deliver the bytes to exec.js
+     * before the message that refers to them.</p>
+     *
+     * @return the encoded message, or null if the queue is empty.
+     */
+    public String popAndEncodeAsWebMessage(List<byte[]> binaryPayloads) {
+        synchronized (this) {
+            drainRingBuffer();
+            JsMessage message = queue.peekFirst();
+            if (message == null) {
+                return null;
+            }
+            boolean detachBinary = binaryPayloads != null && message.hasBinaryPayload();
+            int maxMessageLength = fragmentSize;
+            if (!detachBinary && needsFragmenting(message, maxMessageLength)) {
+                return popFragment(maxMessageLength);
+            }
+            queue.removeFirst();
+            StringBuilder sb = new StringBuilder(detachBinary ? 64 : message.calculateEncodedLength());
+            message.encodeAsMessage(sb, detachBinary ? binaryPayloads : null);
+            flushStats.recordFlush(1);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Whether the message must be sent with popFragment(). Once a message has started
+     * going out in fragments, the rest of it must too, even if the fragment size grew.
+     */
+    private static boolean needsFragmenting(JsMessage message, int maxMessageLength) {
+        return message.isFragmenting() || message.calculateEncodedLength() > maxMessageLength;
+    }
+
+    /**
+     * Returns the next fragment of the first message, and removes the message once its
+     * last fragment has been returned. Must be called while holding the lock on this object.
+     */
+    private String popFragment(int maxLength) {
+        JsMessage message = queue.getFirst();
+        String fragment = message.nextFragment(maxLength);
+        if (message.isFullySent()) {
+            queue.removeFirst();
+            flushStats.recordFlush(1);
+        }
+        return fragment;
+    }
+
     /**
      * Add a JavaScript statement to the list.
      */
@@ -237,6 +433,15 @@ public class NativeToJsMessageQueue {
             return;
         }
         JsMessage message = new JsMessage(result, callbackId);
+        if (encodeOnEnqueue) {
+            // Results added during an exec() are returned by popAndEncode(). Otherwise guess
+            // that the active bridge will flush them. A wrong guess is just encoded later.
+            BridgeMode bridgeMode = activeBridgeMode;
+            // Binary data that the bridge posts as-is would be Base64 encoded for nothing.
+            if (bridgeMode == null || !bridgeMode.detachesBinaryPayloads() || !message.hasBinaryPayload()) {
+                message.preEncode(!paused && bridgeMode != null && bridgeMode.flushesAsJs());
+            }
+        }
         if (FORCE_ENCODE_USING_EVAL) {
             StringBuilder sb = new StringBuilder(message.calculateEncodedLength() + 50);
             message.encodeAsJsMessage(sb);
@@ -247,6 +452,10 @@ public class NativeToJsMessageQueue {
     }
 
     private void enqueueMessage(JsMessage message) {
+        if (ringBuffer != null) {
+            enqueueMessageLockFree(message);
+            return;
+        }
         synchronized (this) {
             if (activeBridgeMode == null) {
                 LOG.d(LOG_TAG, "Dropping Native->JS message due to disabled bridge");
@@ -259,6 +468,33 @@ public class NativeToJsMessageQueue {
         }
     }
 
+    private void enqueueMessageLockFree(JsMessage message) {
+        // Read before the bridge, which reset() disables before incrementing it.
+        message.resetGeneration = resetGeneration;
+        if (activeBridgeMode == null) {
+            LOG.d(LOG_TAG, "Dropping Native->JS message due to disabled bridge");
+            return;
+        }
+        while (!ringBuffer.offer(message)) {
+            // The buffer is full. Become the consumer for a moment to make room. The message
+            // must still go through the buffer: a slot that another producer has claimed but
+            // not yet published stops the drain, and anything behind it must stay ahead of us.
+            synchronized (this) {
+                if (activeBridgeMode == null) {
+                    LOG.d(LOG_TAG, "Dropping Native->JS message due to disabled bridge");
+                    return;
+                }
+                drainRingBuffer();
+            }
+            Thread.yield();
+        }
+        // Must be read after the message is published; see setPaused().
+        BridgeMode bridgeMode = activeBridgeMode;
+        if (!paused && bridgeMode != null) {
+            bridgeMode.onNativeToJsMessageAvailable(this);
+        }
+    }
+
     public void setPaused(boolean value) {
         if (paused && value) {
             // This should never happen. If a use-case for it comes up, we should
@@ -267,8 +503,10 @@ public class NativeToJsMessageQueue {
         }
         paused = value;
         if (!value) {
+            // Lock-free producers publish before reading paused, and we write paused before
+            // checking for messages, so at least one side sees the other and fires the listener.
             synchronized (this) {
-                if (!queue.isEmpty() && activeBridgeMode != null) {
+                if (!isEmpty() && activeBridgeMode != null) {
                     activeBridgeMode.onNativeToJsMessageAvailable(this);
                 }
             }
@@ -277,6 +515,17 @@ public class NativeToJsMessageQueue {
 
     public static abstract class BridgeMode {
         public abstract void onNativeToJsMessageAvailable(NativeToJsMessageQueue queue);
+        /** Whether this mode flushes using popAndEncodeAsJs() rather than popAndEncode(). */
+        public boolean flushesAsJs() {
+            return false;
+        }
+        /**
+         * Whether this mode sends ArrayBuffer and binary string results with
+         * popAndEncodeAsWebMessage(binaryPayloads), so they're never Base64 encoded.
+         */
+        public boolean detachesBinaryPayloads() {
+            return false;
+        }
         public void notifyOfFlush(NativeToJsMessageQueue queue, boolean fromOnlineEvent) {}
         public void reset() {}
     }
@@ -287,27 +536,107 @@ public class NativeToJsMessageQueue {
         }
     }
 
-    /** Uses webView.loadUrl("javascript:") to execute messages. */
-    public static class LoadUrlBridgeMode extends BridgeMode {
-        private final CordovaWebViewEngine engine;
-        private final CordovaInterface cordova;
+    /**
+     * Base class for modes that execute messages as JS on the UI thread.
+     *
+     * <p>At most one flush is pending at any time: messages that arrive while a flush
+     * is scheduled are picked up by that flush instead of posting another one. The
+     * flush window controls how long to wait for more messages before flushing.</p>
+     */
+    public static abstract class UiThreadBridgeMode extends BridgeMode {
+        /** Post the flush to the UI thread right away. */
+        public static final int FLUSH_IMMEDIATELY = -1;
+        /** Flush at the start of the next Choreographer frame. */
+        public static final int FLUSH_ON_NEXT_FRAME = 0;
 
-        public LoadUrlBridgeMode(CordovaWebViewEngine engine, CordovaInterface cordova) {
-            this.engine = engine;
+        protected final CordovaInterface cordova;
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private volatile int flushWindow = FLUSH_IMMEDIATELY;
+        private Handler handler;
+
+        protected UiThreadBridgeMode(CordovaInterface cordova) {
             this.cordova = cordova;
         }
 
+        /**
+         * @param millis    FLUSH_IMMEDIATELY, FLUSH_ON_NEXT_FRAME or the number of
+         *                  milliseconds to collect messages before flushing them.
+         */
+        public void setFlushWindow(int millis) {
+            flushWindow = millis;
+        }
+
+        @Override
+        public boolean flushesAsJs() {
+            return true;
+        }
+
+        /** Executes the given JS on the UI thread. */
+        protected abstract void sendJavascript(String js);
+
+        /** Sends pending messages to JS. Called on the UI thread. */
+        protected void flush(NativeToJsMessageQueue queue) {
+            String js = queue.popAndEncodeAsJs();
+            if (js != null) {
+                sendJavascript(js);
+            }
+        }
+
         @Override
         public void onNativeToJsMessageAvailable(final NativeToJsMessageQueue queue) {
-            cordova.getActivity().runOnUiThread(new Runnable() {
+            if (!flushScheduled.compareAndSet(false, true)) {
+                queue.flushStats.recordCoalescedRequest();
+                return;
+            }
+            final Runnable flushRunnable = new Runnable() {
                 @Override
                 public void run() {
-                    String js = queue.popAndEncodeAsJs();
-                    if (js != null) {
-                        engine.loadUrl("javascript:" + js, false);
-                    }
+                    // Cleared before popping so that any message added after this point
+                    // schedules a new flush.
+                    flushScheduled.set(false);
+                    flush(queue);
                 }
-            });
+            };
+            int window = flushWindow;
+            if (window > 0) {
+                getHandler().postDelayed(flushRunnable, window);
+            } else if (window == FLUSH_ON_NEXT_FRAME) {
+                cordova.getActivity().runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                            @Override
+                            public void doFrame(long frameTimeNanos) {
+                                flushRunnable.run();
+                            }
+                        });
+                    }
+                });
+            } else {
+                cordova.getActivity().runOnUiThread(flushRunnable);
+            }
+        }
+
+        private synchronized Handler getHandler() {
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+            }
+            return handler;
+        }
+    }
+
+    /** Uses webView.loadUrl("javascript:") to execute messages. */
+    public static class LoadUrlBridgeMode extends UiThreadBridgeMode {
+        private final CordovaWebViewEngine engine;
+
+        public LoadUrlBridgeMode(CordovaWebViewEngine engine, CordovaInterface cordova) {
+            super(cordova);
+            this.engine = engine;
+        }
+
+        @Override
+        protected void sendJavascript(String js) {
+            engine.loadUrl("javascript:" + js, false);
         }
     }
 
@@ -361,34 +690,150 @@ public class NativeToJsMessageQueue {
     }
 
     /** Uses webView.evaluateJavascript to execute messages. */
-    public static class EvalBridgeMode extends BridgeMode {
+    public static class EvalBridgeMode extends UiThreadBridgeMode {
         private final CordovaWebViewEngine engine;
-        private final CordovaInterface cordova;
 
         public EvalBridgeMode(CordovaWebViewEngine engine, CordovaInterface cordova) {
+            super(cordova);
             this.engine = engine;
-            this.cordova = cordova;
         }
 
         @Override
-        public void onNativeToJsMessageAvailable(final NativeToJsMessageQueue queue) {
-            cordova.getActivity().runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    String js = queue.popAndEncodeAsJs();
-                    if (js != null) {
-                        engine.evaluateJavascript(js, null);
+        protected void sendJavascript(String js) {
+            engine.evaluateJavascript(js, null);
+        }
+    }
+
+    /**
+     * Counts how many messages are sent to JS per flush, and how many flush
+     * requests were folded into an already scheduled flush.
+     */
+    public static class FlushStats {
+        private final AtomicLong flushCount = new AtomicLong();
+        private final AtomicLong messageCount = new AtomicLong();
+        private final AtomicLong coalescedRequestCount = new AtomicLong();
+        private volatile int maxBatchSize;
+
+        // Called while holding the queue lock.
+        private void recordFlush(int batchSize) {
+            flushCount.incrementAndGet();
+            messageCount.addAndGet(batchSize);
+            if (batchSize > maxBatchSize) {
+                maxBatchSize = batchSize;
+            }
+        }
+
+        private void recordCoalescedRequest() {
+            coalescedRequestCount.incrementAndGet();
+        }
+
+        /** @return the number of non-empty flushes. */
+        public long getFlushCount() {
+            return flushCount.get();
+        }
+
+        /** @return the number of messages sent over all flushes. */
+        public long getMessageCount() {
+            return messageCount.get();
+        }
+
+        /** @return the number of flush requests that did not need a flush of their own. */
+        public long getCoalescedRequestCount() {
+            return coalescedRequestCount.get();
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public double getAverageBatchSize() {
+            long flushes = flushCount.get();
+            return flushes == 0 ? 0 : (double) messageCount.get() / flushes;
+        }
+    }
+
+    /**
+     * Bounded multi-producer/single-consumer queue of messages. Producers claim a slot
+     * with a CAS on the tail and publish it by advancing the slot's sequence number, so
+     * enqueueing never blocks and never allocates. The single consumer is whichever
+     * thread holds the lock on the owning NativeToJsMessageQueue.
+     */
+    private static class MessageRingBuffer {
+        private final int mask;
+        private final AtomicReferenceArray<JsMessage> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head; // Only written while holding the consumer lock.
+
+        MessageRingBuffer(int requestedCapacity) {
+            int capacity = Integer.highestOneBit(Math.min(Math.max(2, requestedCapacity), 1 << 30) - 1) << 1;
+            mask = capacity - 1;
+            slots = new AtomicReferenceArray<JsMessage>(capacity);
+            sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; ++i) {
+                sequences.set(i, i);
+            }
+        }
+
+        /**
+         * @return false if the buffer is full.
+         */
+        boolean offer(JsMessage message) {
+            long pos = tail.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long delta = sequences.get(index) - pos;
+                if (delta == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots.lazySet(index, message);
+                        // A volatile write (rather than lazySet) so that it is ordered
+                        // before the subsequent read of the paused flag.
+                        sequences.set(index, pos + 1);
+                        return true;
                     }
+                    pos = tail.get();
+                } else if (delta < 0) {
+                    // The consumer has not yet freed this slot.
+                    return false;
+                } else {
+                    // Another producer claimed this slot first.
+                    pos = tail.get();
                 }
-            });
+            }
         }
-    }
 
+        /**
+         * @return the oldest published message, or null if there is none.
+         */
+        JsMessage poll() {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return null;
+            }
+            JsMessage message = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            return message;
+        }
 
+        boolean isEmpty() {
+            return sequences.get((int) (head & mask)) != head + 1;
+        }
+    }
 
     private static class JsMessage {
         final String jsPayloadOrCallbackId;
         final PluginResult pluginResult;
+        private int encodedLength = -1;
+        // The queue's resetGeneration when the message was offered to the ring buffer.
+        int resetGeneration;
+        // Set by preEncode(). Holds the output of either encodeAsMessage() or encodeAsJsMessage().
+        private String preEncoded;
+        private boolean preEncodedAsJs;
+        // Set while the message is being sent in fragments.
+        private String fragmentSource;
+        private int fragmentOffset;
         JsMessage(String js) {
             if (js == null) {
                 throw new NullPointerException();
@@ -404,7 +849,65 @@ public class NativeToJsMessageQueue {
             this.pluginResult = pluginResult;
         }
 
+        /**
+         * Returns the next piece of this message's popAndEncode() encoding, as a message
+         * of its own: 'P', then '1' if more fragments follow or '0' for the last one, then
+         * at most maxLength - 2 characters of the encoded message.
+         */
+        String nextFragment(int maxLength) {
+            if (fragmentSource == null) {
+                StringBuilder sb = new StringBuilder(calculateEncodedLength());
+                encodeAsMessage(sb);
+                fragmentSource = sb.toString();
+                fragmentOffset = 0;
+            }
+            int totalLength = fragmentSource.length();
+            int end = Math.min(totalLength, fragmentOffset + maxLength - 2);
+            // Don't split a surrogate pair, since each fragment is converted to UTF-8 on its own.
+            if (end < totalLength && Character.isHighSurrogate(fragmentSource.charAt(end - 1))) {
+                end--;
+            }
+            boolean last = end == totalLength;
+            StringBuilder sb = new StringBuilder(end - fragmentOffset + 2);
+            sb.append('P')
+              .append(last ? '0' : '1')
+              .append(fragmentSource, fragmentOffset, end);
+            fragmentOffset = end;
+            if (last) {
+                fragmentSource = null;
+            }
+            return sb.toString();
+        }
+
+        boolean isFullySent() {
+            return fragmentSource == null && fragmentOffset > 0;
+        }
+
+        boolean isFragmenting() {
+            return fragmentSource != null;
+        }
+
+        boolean hasBinaryPayload() {
+            return pluginResult != null && hasBinaryPayloadHelper(pluginResult);
+        }
+
+        static boolean hasBinaryPayloadHelper(PluginResult pluginResult) {
+            if (pluginResult.getMessageType() == PluginResult.MESSAGE_TYPE_MULTIPART) {
+                for (int i = 0; i < pluginResult.getMultipartMessagesSize(); i++) {
+                    if (hasBinaryPayloadHelper(pluginResult.getMultipartMessage(i))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return pluginResult.getBinaryMessage() != null;
+        }
+
         static int calculateEncodedLengthHelper(PluginResult pluginResult) {
+            return calculateEncodedLengthHelper(pluginResult, false);
+        }
+
+        static int calculateEncodedLengthHelper(PluginResult pluginResult, boolean detachBinary) {
             switch (pluginResult.getMessageType()) {
                 case PluginResult.MESSAGE_TYPE_BOOLEAN: // f or t
                 case PluginResult.MESSAGE_TYPE_NULL: // N
@@ -414,13 +917,12 @@ public class NativeToJsMessageQueue {
                 case PluginResult.MESSAGE_TYPE_STRING: // s
                     return 1 + pluginResult.getStrMessage().length();
                 case PluginResult.MESSAGE_TYPE_BINARYSTRING:
-                    return 1 + pluginResult.getMessage().length();
                 case PluginResult.MESSAGE_TYPE_ARRAYBUFFER:
-                    return 1 + pluginResult.getMessage().length();
+                    return detachBinary ? 1 : 1 + pluginResult.getMessage().length();
                 case PluginResult.MESSAGE_TYPE_MULTIPART:
                     int ret = 1;
                     for (int i = 0; i < pluginResult.getMultipartMessagesSize(); i++) {
-                        int length = calculateEncodedLengthHelper(pluginResult.getMultipartMessage(i));
+                        int length = calculateEncodedLengthHelper(pluginResult.getMultipartMessage(i), detachBinary);
                         int argLength = String.valueOf(length).length();
                         ret += argLength + 1 + length;
                     }
@@ -432,15 +934,40 @@ public class NativeToJsMessageQueue {
         }
 
         int calculateEncodedLength() {
-            if (pluginResult == null) {
-                return jsPayloadOrCallbackId.length() + 1;
+            if (encodedLength < 0) {
+                if (pluginResult == null) {
+                    encodedLength = jsPayloadOrCallbackId.length() + 1;
+                } else {
+                    int statusLen = String.valueOf(pluginResult.getStatus()).length();
+                    int ret = 2 + statusLen + 1 + jsPayloadOrCallbackId.length() + 1;
+                    encodedLength = ret + calculateEncodedLengthHelper(pluginResult);
+                }
             }
-            int statusLen = String.valueOf(pluginResult.getStatus()).length();
-            int ret = 2 + statusLen + 1 + jsPayloadOrCallbackId.length() + 1;
-            return ret + calculateEncodedLengthHelper(pluginResult);
+            return encodedLength;
+        }
+
+        /**
+         * Encodes the message ahead of time in the format used by popAndEncodeAsJs() when
+         * asJs is true, or popAndEncode() otherwise. The other format is still produced on demand.
+         */
+        void preEncode(boolean asJs) {
+            int len = calculateEncodedLength();
+            StringBuilder sb = new StringBuilder(asJs ? len + 50 : len);
+            if (asJs) {
+                encodeAsJsMessage(sb);
+            } else {
+                encodeAsMessage(sb);
             }
+            preEncodedAsJs = asJs;
+            preEncoded = sb.toString();
+        }
 
-        static void encodeAsMessageHelper(StringBuilder sb, PluginResult pluginResult) {
+        /**
+         * @param binaryPayloads    When non-null, binary payloads are added to this list
+         *                          and encoded as 'a' (ArrayBuffer) or 'b' (binary string)
+         *                          without data.
+         */
+        static void encodeAsMessageHelper(StringBuilder sb, PluginResult pluginResult, List<byte[]> binaryPayloads) {
             switch (pluginResult.getMessageType()) {
                 case PluginResult.MESSAGE_TYPE_BOOLEAN:
                     sb.append(pluginResult.getMessage().charAt(0)); // t or f.
@@ -457,10 +984,20 @@ public class NativeToJsMessageQueue {
                     sb.append(pluginResult.getStrMessage());
                     break;
                 case PluginResult.MESSAGE_TYPE_BINARYSTRING: // S
+                    if (binaryPayloads != null) {
+                        sb.append('b');
+                        binaryPayloads.add(pluginResult.getBinaryMessage());
+                        break;
+                    }
                     sb.append('S');
                     sb.append(pluginResult.getMessage());
                     break;
                 case PluginResult.MESSAGE_TYPE_ARRAYBUFFER: // A
+                    if (binaryPayloads != null) {
+                        sb.append('a');
+                        binaryPayloads.add(pluginResult.getBinaryMessage());
+                        break;
+                    }
                     sb.append('A');
                     sb.append(pluginResult.getMessage());
                     break;
@@ -468,9 +1005,9 @@ public class NativeToJsMessageQueue {
                     sb.append('M');
                     for (int i = 0; i < pluginResult.getMultipartMessagesSize(); i++) {
                         PluginResult multipartMessage = pluginResult.getMultipartMessage(i);
-                        sb.append(String.valueOf(calculateEncodedLengthHelper(multipartMessage)));
+                        sb.append(String.valueOf(calculateEncodedLengthHelper(multipartMessage, binaryPayloads != null)));
                         sb.append(' ');
-                        encodeAsMessageHelper(sb, multipartMessage);
+                        encodeAsMessageHelper(sb, multipartMessage, binaryPayloads);
                     }
                     break;
                 case PluginResult.MESSAGE_TYPE_JSON:
@@ -480,6 +1017,14 @@ public class NativeToJsMessageQueue {
         }
 
         void encodeAsMessage(StringBuilder sb) {
+            encodeAsMessage(sb, null);
+        }
+
+        void encodeAsMessage(StringBuilder sb, List<byte[]> binaryPayloads) {
+            if (preEncoded != null && !preEncodedAsJs && binaryPayloads == null) {
+                sb.append(preEncoded);
+                return;
+            }
             if (pluginResult == null) {
                 sb.append('J')
                   .append(jsPayloadOrCallbackId);
@@ -497,7 +1042,7 @@ public class NativeToJsMessageQueue {
               .append(jsPayloadOrCallbackId)
               .append(' ');
 
-            encodeAsMessageHelper(sb, pluginResult);
+            encodeAsMessageHelper(sb, pluginResult, binaryPayloads);
         }
 
         void buildJsMessage(StringBuilder sb) {
@@ -532,7 +1077,9 @@ public class NativeToJsMessageQueue {
         }
 
         void encodeAsJsMessage(StringBuilder sb) {
-            if (pluginResult == null) {
+            if (preEncoded != null && preEncodedAsJs) {
+                sb.append(preEncoded);
+            } else if (pluginResult == null) {
                 sb.append(jsPayloadOrCallbackId);
             } else {
                 int status = pluginResult.getStatus();
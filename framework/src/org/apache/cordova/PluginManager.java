@@ -18,11 +18,21 @@
 */
 package org.apache.cordova;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.json.JSONException;
 
@@ -44,26 +54,63 @@ import android.webkit.WebView;
 public class PluginManager {
     private static String TAG = "PluginManager";
 
-    // @todo same as ConfigXmlParser. Research centralizing ideas, maybe create CordovaConstants
-    private static String SCHEME_HTTPS = "https";
-    // @todo same as ConfigXmlParser. Research centralizing ideas, maybe create CordovaConstants
-    private static String DEFAULT_HOSTNAME = "localhost";
-
     private static final int SLOW_EXEC_WARNING_THRESHOLD = Debug.isDebuggerConnected() ? 60 : 16;
 
     // List of service entries
     private final Map<String, CordovaPlugin> pluginMap = Collections.synchronizedMap(new LinkedHashMap<String, CordovaPlugin>());
     private final Map<String, PluginEntry> entryMap = Collections.synchronizedMap(new LinkedHashMap<String, PluginEntry>());
+    // Onload plugins being initialized in the background, by service. Done entries are
+    // kept until the plugins are restarted so that a failed plugin isn't retried.
+    private final Map<String, CompletableFuture<CordovaPlugin>> backgroundInitializations = new ConcurrentHashMap<String, CompletableFuture<CordovaPlugin>>();
+
+    // Hooks that are called for every request or navigation. Each has its own list of
+    // the plugins that override it, so calls scan only those plugins and don't lock.
+    private static final int HOOK_SHOULD_ALLOW_REQUEST = 0;
+    private static final int HOOK_SHOULD_ALLOW_NAVIGATION = 1;
+    private static final int HOOK_SHOULD_ALLOW_BRIDGE_ACCESS = 2;
+    private static final int HOOK_SHOULD_OPEN_EXTERNAL_URL = 3;
+    private static final int HOOK_ON_OVERRIDE_URL_LOADING = 4;
+    private static final int HOOK_REMAP_URI = 5;
+    private static final String[] HOOK_METHOD_NAMES = {
+        "shouldAllowRequest", "shouldAllowNavigation", "shouldAllowBridgeAccess",
+        "shouldOpenExternalUrl", "onOverrideUrlLoading", "remapUri"
+    };
+    private static final Class<?>[] HOOK_PARAMETER_TYPES = {
+        String.class, String.class, String.class, String.class, String.class, Uri.class
+    };
+    // Bit mask of the hooks that each plugin class overrides.
+    private static final Map<Class<?>, Integer> overriddenHooksByClass = new ConcurrentHashMap<Class<?>, Integer>();
+    // Other CordovaPlugin methods that are called without waiting for plugins being
+    // initialized in the background. Matched by name, so that no class newer than
+    // minSdk needs to be loaded.
+    private static final List<String> UNAWAITED_METHOD_NAMES = Arrays.asList(
+        "onMessage", "onActivityResult", "handleOpenForRead", "onReset",
+        "onReceivedHttpAuthRequest", "onReceivedClientCertRequest", "onRequestPermissionResult",
+        "onRequestPermissionsResult", "getPathHandler", "onRenderProcessGone"
+    );
+    private static final Map<Class<?>, Boolean> unawaitedCallsByClass = new ConcurrentHashMap<Class<?>, Boolean>();
 
     private final CordovaInterface ctx;
     private final CordovaWebView app;
     private boolean isInitialized;
 
+    private final AtomicInteger pluginsVersion = new AtomicInteger();
+    private final Object hookSubscribersLock = new Object();
+    private int hookSubscribersVersion; // Guarded by hookSubscribersLock.
+    private volatile CordovaPlugin[][] hookSubscribers = new CordovaPlugin[HOOK_METHOD_NAMES.length][0];
+    private volatile PluginPathHandlerTrie pathHandlers = PluginPathHandlerTrie.EMPTY;
+    // Null unless the PolicyDecisionCacheSize preference is set.
+    private final PolicyDecisionCache policyDecisionCache;
+
     private CordovaPlugin permissionRequester;
 
     public PluginManager(CordovaWebView cordovaWebView, CordovaInterface cordova, Collection<PluginEntry> pluginEntries) {
         this.ctx = cordova;
         this.app = cordovaWebView;
+        int policyDecisionCacheSize = app != null && app.getPreferences() != null
+                ? app.getPreferences().getInteger("PolicyDecisionCacheSize", 0)
+                : 0;
+        policyDecisionCache = policyDecisionCacheSize > 0 ? new PolicyDecisionCache(policyDecisionCacheSize) : null;
         setPluginEntries(pluginEntries);
     }
 
@@ -76,7 +123,9 @@ public class PluginManager {
             this.onPause(false);
             this.onDestroy();
             pluginMap.clear();
+            backgroundInitializations.clear();
             entryMap.clear();
+            updateHookSubscribers();
         }
         for (PluginEntry entry : pluginEntries) {
             addService(entry);
@@ -95,6 +144,8 @@ public class PluginManager {
         this.onPause(false);
         this.onDestroy();
         pluginMap.clear();
+        backgroundInitializations.clear();
+        updateHookSubscribers();
         this.startupPlugins();
     }
 
@@ -102,19 +153,178 @@ public class PluginManager {
      * Create plugins objects that have onload set.
      */
     private void startupPlugins() {
+        // Not iterated under entryMap's lock, because plugins may wait for ones being
+        // initialized in the background, which need the lock to be published.
+        List<PluginEntry> entries;
         synchronized (entryMap) {
-            for (PluginEntry entry : entryMap.values()) {
-                // Add a null entry to for each non-startup plugin to avoid ConcurrentModificationException
-                // When iterating plugins.
-                if (entry.onload) {
-                    getPlugin(entry.service);
+            entries = new ArrayList<PluginEntry>(entryMap.values());
+        }
+
+        // Construct the onload plugins first to find out which can be initialized in the background.
+        Map<String, CordovaPlugin> onloadPlugins = new LinkedHashMap<String, CordovaPlugin>();
+        Map<String, CordovaPlugin> threadSafePlugins = new LinkedHashMap<String, CordovaPlugin>();
+        for (PluginEntry entry : entries) {
+            if (entry.onload && entry.plugin == null && pluginMap.get(entry.service) == null) {
+                CordovaPlugin plugin = instantiatePlugin(entry.pluginClass);
+                if (plugin != null) {
+                    onloadPlugins.put(entry.service, plugin);
+                    if (plugin.isInitializationThreadSafe()) {
+                        if (receivesUnawaitedCalls(plugin.getClass())) {
+                            // It would miss hooks and events during the first page load.
+                            LOG.d(TAG, "startupPlugins: not initializing " + entry.service + " in the background because it overrides hooks or callbacks");
+                        } else {
+                            threadSafePlugins.put(entry.service, plugin);
+                        }
+                    }
                 }
-                else {
-                    LOG.d(TAG, "startupPlugins: put - " + entry.service);
+            }
+        }
+        if (!threadSafePlugins.isEmpty()) {
+            // Plugins initialized in the background are put when they're ready, so hold
+            // every plugin's place in the order now.
+            for (PluginEntry entry : entries) {
+                if (!pluginMap.containsKey(entry.service)) {
                     pluginMap.put(entry.service, null);
                 }
             }
         }
+        startBackgroundInitializations(threadSafePlugins);
+
+        for (PluginEntry entry : entries) {
+            // Add a null entry to for each non-startup plugin to avoid ConcurrentModificationException
+            // When iterating plugins.
+            if (backgroundInitializations.containsKey(entry.service)) {
+                continue;
+            }
+            if (entry.onload) {
+                // Unless an earlier plugin, or one being initialized in the background,
+                // already asked for it.
+                createPlugin(entry, onloadPlugins.get(entry.service));
+            }
+            else {
+                LOG.d(TAG, "startupPlugins: put - " + entry.service);
+                pluginMap.put(entry.service, null);
+            }
+        }
+    }
+
+    /**
+     * Starts initializing the plugins whose dependencies are all initialized in the
+     * background too, each once its dependencies are done. The others are left to be
+     * initialized in order on this thread.
+     */
+    private void startBackgroundInitializations(Map<String, CordovaPlugin> plugins) {
+        ExecutorService executor = ctx != null ? ctx.getThreadPool() : null;
+        if (executor == null || plugins.isEmpty()) {
+            return;
+        }
+        List<String> waiting = new ArrayList<String>(plugins.keySet());
+        boolean started = true;
+        // Start plugins after their dependencies, which also leaves out any cycles.
+        while (started) {
+            started = false;
+            for (int i = 0; i < waiting.size(); i++) {
+                String service = waiting.get(i);
+                CordovaPlugin plugin = plugins.get(service);
+                String[] dependencies = plugin.getInitializationDependencies();
+                CompletableFuture<?>[] dependencyInitializations = new CompletableFuture<?>[dependencies != null ? dependencies.length : 0];
+                for (int d = 0; d < dependencyInitializations.length; d++) {
+                    dependencyInitializations[d] = backgroundInitializations.get(dependencies[d]);
+                    if (dependencyInitializations[d] == null) {
+                        dependencyInitializations = null;
+                        break;
+                    }
+                }
+                if (dependencyInitializations == null) {
+                    continue;
+                }
+                final CompletableFuture<CordovaPlugin> initialization = CompletableFuture.allOf(dependencyInitializations)
+                        .thenApplyAsync(newBackgroundInitialization(service, plugin), executor);
+                backgroundInitializations.put(service, initialization);
+                // Published as a separate task so that the initialization is already complete
+                // for anyone who waits for it while holding pluginMap or entryMap.
+                initialization.thenAcceptAsync(new Consumer<CordovaPlugin>() {
+                    @Override
+                    public void accept(CordovaPlugin plugin) {
+                        publishBackgroundInitialization(plugin, initialization);
+                    }
+                }, executor);
+                waiting.remove(i--);
+                started = true;
+            }
+        }
+        for (String service : waiting) {
+            LOG.d(TAG, "Initializing " + service + " on the calling thread because of its dependencies");
+        }
+    }
+
+    private Function<Void, CordovaPlugin> newBackgroundInitialization(final String service, final CordovaPlugin plugin) {
+        return new Function<Void, CordovaPlugin>() {
+            @Override
+            public CordovaPlugin apply(Void dependencies) {
+                try {
+                    long startTime = System.currentTimeMillis();
+                    plugin.privateInitialize(service, ctx, app, app.getPreferences());
+                    LOG.d(TAG, "Initialized " + service + " in the background in " + (System.currentTimeMillis() - startTime) + "ms");
+                    return plugin;
+                } catch (RuntimeException e) {
+                    // getPlugin() returns null for the service, as exec() expects of a missing plugin.
+                    LOG.e(TAG, "Failed to initialize " + service, e);
+                    return null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Puts a plugin initialized in the background into pluginMap, unless it has been
+     * put already or the plugins have been restarted since.
+     */
+    private void publishBackgroundInitialization(CordovaPlugin plugin, CompletableFuture<CordovaPlugin> initialization) {
+        if (plugin == null) {
+            return;
+        }
+        String service = plugin.getServiceName();
+        synchronized (pluginMap) {
+            if (backgroundInitializations.get(service) != initialization || pluginMap.get(service) == plugin) {
+                return;
+            }
+            LOG.d(TAG, "getPlugin - put: " + service);
+            pluginMap.put(service, plugin);
+        }
+        updateHookSubscribers();
+    }
+
+    private void initializePlugin(String service, CordovaPlugin plugin) {
+        plugin.privateInitialize(service, ctx, app, app.getPreferences());
+        LOG.d(TAG, "getPlugin - put: " + service);
+        pluginMap.put(service, plugin);
+        updateHookSubscribers();
+    }
+
+    /**
+     * Waits until the onload plugins being initialized in the background are ready, so
+     * that they see every lifecycle event.
+     */
+    private void awaitBackgroundInitializations() {
+        for (CompletableFuture<CordovaPlugin> initialization : backgroundInitializations.values()) {
+            awaitBackgroundInitialization(initialization);
+        }
+    }
+
+    /**
+     * Returns the plugin once it's initialized and in pluginMap, or null if it failed.
+     */
+    private CordovaPlugin awaitBackgroundInitialization(CompletableFuture<CordovaPlugin> initialization) {
+        CordovaPlugin plugin;
+        try {
+            plugin = initialization.join();
+        } catch (CompletionException e) {
+            LOG.e(TAG, "Plugin initialization failed", e.getCause());
+            return null;
+        }
+        publishBackgroundInitialization(plugin, initialization);
+        return plugin;
     }
 
     /**
@@ -135,6 +345,17 @@ public class PluginManager {
      *                      plugin execute method.
      */
     public void exec(final String service, final String action, final String callbackId, final String rawArgs) {
+        exec(service, action, callbackId, rawArgs, null);
+    }
+
+    /**
+     * Like exec(String, String, String, String), for bridges that receive ArrayBuffer
+     * arguments as binary.
+     *
+     * @param arrayBuffers  A non-null arrayBuffers[i] is the value of argument i, which
+     *                      stands in for whatever rawArgs holds at that index. May be null.
+     */
+    public void exec(final String service, final String action, final String callbackId, final String rawArgs, final byte[][] arrayBuffers) {
         CordovaPlugin plugin = getPlugin(service);
         if (plugin == null) {
             LOG.d(TAG, "exec() call to unknown plugin: " + service);
@@ -145,7 +366,7 @@ public class PluginManager {
         CallbackContext callbackContext = new CallbackContext(callbackId, app);
         try {
             long pluginStartTime = System.currentTimeMillis();
-            boolean wasValidAction = plugin.execute(action, rawArgs, callbackContext);
+            boolean wasValidAction = plugin.execute(action, rawArgs, arrayBuffers, callbackContext);
             long duration = System.currentTimeMillis() - pluginStartTime;
 
             if (duration > SLOW_EXEC_WARNING_THRESHOLD) {
@@ -175,22 +396,46 @@ public class PluginManager {
     public CordovaPlugin getPlugin(String service) {
         CordovaPlugin ret = pluginMap.get(service);
         if (ret == null) {
+            CompletableFuture<CordovaPlugin> initialization = backgroundInitializations.get(service);
+            if (initialization != null) {
+                // The barrier that keeps exec() from reaching a plugin before it's ready.
+                return awaitBackgroundInitialization(initialization);
+            }
             PluginEntry pe = entryMap.get(service);
             if (pe == null) {
                 return null;
             }
-            if (pe.plugin != null) {
-                ret = pe.plugin;
-            } else {
-                ret = instantiatePlugin(pe.pluginClass);
-            }
-            ret.privateInitialize(service, ctx, app, app.getPreferences());
-            LOG.d(TAG, "getPlugin - put: " + service);
-            pluginMap.put(service, ret);
+            ret = createPlugin(pe, null);
         }
         return ret;
     }
 
+    /**
+     * Initializes the entry's plugin and puts it, unless another thread already has.
+     * Plugins being initialized in the background may ask for a plugin while the calling
+     * thread is creating it, so this is done under the entry's lock.
+     *
+     * @param entry         The plugin's entry
+     * @param plugin        The instantiated plugin, or null to use or create the entry's
+     * @return              The plugin that was put
+     */
+    private CordovaPlugin createPlugin(PluginEntry entry, CordovaPlugin plugin) {
+        synchronized (entry) {
+            CordovaPlugin ret = pluginMap.get(entry.service);
+            if (ret == null) {
+                if (plugin != null) {
+                    ret = plugin;
+                } else if (entry.plugin != null) {
+                    ret = entry.plugin;
+                } else {
+                    ret = instantiatePlugin(entry.pluginClass);
+                }
+                initializePlugin(entry.service, ret);
+            }
+            return ret;
+        }
+    }
+
     /**
      * Add a plugin class that implements a service to the service entry table.
      * This does not create the plugin object instance.
@@ -227,6 +472,104 @@ public class PluginManager {
             LOG.d(TAG, "addService: put - " + entry.service);
             pluginMap.put(entry.service, entry.plugin);
         }
+        updateHookSubscribers();
+    }
+
+    /**
+     * Rebuilds the lists of plugins that override each hook, and the path handler
+     * trie. Must be called after every change to entryMap or pluginMap.
+     */
+    private void updateHookSubscribers() {
+        int version = pluginsVersion.incrementAndGet();
+        // The URL hooks have always been called in entry order, while remapUri() used plugin order.
+        List<CordovaPlugin> inEntryOrder = new ArrayList<CordovaPlugin>();
+        synchronized (entryMap) {
+            for (PluginEntry entry : entryMap.values()) {
+                CordovaPlugin plugin = pluginMap.get(entry.service);
+                if (plugin != null) {
+                    inEntryOrder.add(plugin);
+                }
+            }
+        }
+        List<CordovaPlugin> inPluginOrder = new ArrayList<CordovaPlugin>();
+        synchronized (pluginMap) {
+            for (CordovaPlugin plugin : pluginMap.values()) {
+                if (plugin != null) {
+                    inPluginOrder.add(plugin);
+                }
+            }
+        }
+        CordovaPlugin[][] subscribers = new CordovaPlugin[HOOK_METHOD_NAMES.length][];
+        for (int hook = 0; hook < subscribers.length; hook++) {
+            List<CordovaPlugin> plugins = hook == HOOK_REMAP_URI ? inPluginOrder : inEntryOrder;
+            List<CordovaPlugin> overriding = new ArrayList<CordovaPlugin>();
+            for (CordovaPlugin plugin : plugins) {
+                if ((getOverriddenHooks(plugin.getClass()) & (1 << hook)) != 0) {
+                    overriding.add(plugin);
+                }
+            }
+            subscribers[hook] = overriding.toArray(new CordovaPlugin[overriding.size()]);
+        }
+        List<CordovaPluginPathHandler> handlers = new ArrayList<CordovaPluginPathHandler>();
+        for (CordovaPlugin plugin : inPluginOrder) {
+            CordovaPluginPathHandler handler = plugin.getPathHandler();
+            if (handler != null && handler.getPathHandler() != null) {
+                handlers.add(handler);
+            }
+        }
+        PluginPathHandlerTrie trie = new PluginPathHandlerTrie(handlers);
+        synchronized (hookSubscribersLock) {
+            // Don't let a slower, concurrent rebuild replace a newer one.
+            if (version > hookSubscribersVersion) {
+                hookSubscribersVersion = version;
+                hookSubscribers = subscribers;
+                pathHandlers = trie;
+            }
+        }
+        if (policyDecisionCache != null) {
+            // Decisions were made by the old set of plugins.
+            policyDecisionCache.clear();
+        }
+    }
+
+    private static int getOverriddenHooks(Class<?> pluginClass) {
+        Integer hooks = overriddenHooksByClass.get(pluginClass);
+        if (hooks == null) {
+            int mask = 0;
+            for (int hook = 0; hook < HOOK_METHOD_NAMES.length; hook++) {
+                try {
+                    if (pluginClass.getMethod(HOOK_METHOD_NAMES[hook], HOOK_PARAMETER_TYPES[hook]).getDeclaringClass() != CordovaPlugin.class) {
+                        mask |= 1 << hook;
+                    }
+                } catch (NoSuchMethodException e) {
+                    mask |= 1 << hook;
+                }
+            }
+            hooks = mask;
+            overriddenHooksByClass.put(pluginClass, hooks);
+        }
+        return hooks;
+    }
+
+    /**
+     * Returns whether the plugin class overrides a hook or callback that is called without
+     * waiting for background initialization, so the plugin can't be initialized there.
+     */
+    private static boolean receivesUnawaitedCalls(Class<?> pluginClass) {
+        Boolean receives = unawaitedCallsByClass.get(pluginClass);
+        if (receives == null) {
+            receives = getOverriddenHooks(pluginClass) != 0;
+            for (Class<?> cls = pluginClass; !receives && cls != CordovaPlugin.class; cls = cls.getSuperclass()) {
+                for (Method method : cls.getDeclaredMethods()) {
+                    if (UNAWAITED_METHOD_NAMES.contains(method.getName())) {
+                        receives = true;
+                        break;
+                    }
+                }
+            }
+            unawaitedCallsByClass.put(pluginClass, receives);
+        }
+        return receives;
     }
 
     /**
@@ -235,6 +578,7 @@ public class PluginManager {
      * @param multitasking      Flag indicating if multitasking is turned on for app
      */
     public void onPause(boolean multitasking) {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -290,6 +634,7 @@ public class PluginManager {
      * @param multitasking      Flag indicating if multitasking is turned on for app
      */
     public void onResume(boolean multitasking) {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -303,6 +648,7 @@ public class PluginManager {
      * Called when the activity is becoming visible to the user.
      */
     public void onStart() {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -316,6 +662,7 @@ public class PluginManager {
      * Called when the activity is no longer visible to the user.
      */
     public void onStop() {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -329,6 +676,7 @@ public class PluginManager {
      * The final call you receive before your activity is destroyed.
      */
     public void onDestroy() {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -361,6 +709,7 @@ public class PluginManager {
      * Called when the activity receives a new intent.
      */
     public void onNewIntent(Intent intent) {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -381,13 +730,8 @@ public class PluginManager {
      * <p>Would be considered as a breaking change if we apply a more granular check.</p>
      */
     private String getLaunchUrlPrefix() {
-        if (!app.getPreferences().getBoolean("AndroidInsecureFileModeEnabled", false)) {
-            String scheme = app.getPreferences().getString("scheme", SCHEME_HTTPS).toLowerCase();
-            String hostname = app.getPreferences().getString("hostname", DEFAULT_HOSTNAME).toLowerCase();
-            return scheme + "://" + hostname + '/';
-        }
-
-        return "file://";
+        // Computed once per set of preferences, as this runs for every navigation.
+        return app.getPreferences().getSnapshot().getLaunchUrlPrefix();
     }
 
     /**
@@ -402,15 +746,23 @@ public class PluginManager {
      *                  false to block the resource.
      */
     public boolean shouldAllowRequest(String url) {
-        synchronized (this.entryMap) {
-            for (PluginEntry entry : this.entryMap.values()) {
-                CordovaPlugin plugin = pluginMap.get(entry.service);
-                if (plugin != null) {
-                    Boolean result = plugin.shouldAllowRequest(url);
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        if (policyDecisionCache == null) {
+            return decideAllowRequest(url);
+        }
+        Boolean decision = policyDecisionCache.get(PolicyDecisionCache.KIND_REQUEST, url);
+        if (decision == null) {
+            int generation = policyDecisionCache.getGeneration();
+            decision = decideAllowRequest(url);
+            policyDecisionCache.put(PolicyDecisionCache.KIND_REQUEST, url, decision, generation);
+        }
+        return decision;
+    }
+
+    private boolean decideAllowRequest(String url) {
+        for (CordovaPlugin plugin : hookSubscribers[HOOK_SHOULD_ALLOW_REQUEST]) {
+            Boolean result = plugin.shouldAllowRequest(url);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -442,15 +794,23 @@ public class PluginManager {
      *                  false to block the navigation.
      */
     public boolean shouldAllowNavigation(String url) {
-        synchronized (this.entryMap) {
-            for (PluginEntry entry : this.entryMap.values()) {
-                CordovaPlugin plugin = pluginMap.get(entry.service);
-                if (plugin != null) {
-                    Boolean result = plugin.shouldAllowNavigation(url);
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        if (policyDecisionCache == null) {
+            return decideAllowNavigation(url);
+        }
+        Boolean decision = policyDecisionCache.get(PolicyDecisionCache.KIND_NAVIGATION, url);
+        if (decision == null) {
+            int generation = policyDecisionCache.getGeneration();
+            decision = decideAllowNavigation(url);
+            policyDecisionCache.put(PolicyDecisionCache.KIND_NAVIGATION, url, decision, generation);
+        }
+        return decision;
+    }
+
+    private boolean decideAllowNavigation(String url) {
+        for (CordovaPlugin plugin : hookSubscribers[HOOK_SHOULD_ALLOW_NAVIGATION]) {
+            Boolean result = plugin.shouldAllowNavigation(url);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -463,15 +823,23 @@ public class PluginManager {
      * Called when the WebView is requesting the exec() bridge be enabled.
      */
     public boolean shouldAllowBridgeAccess(String url) {
-        synchronized (this.entryMap) {
-            for (PluginEntry entry : this.entryMap.values()) {
-                CordovaPlugin plugin = pluginMap.get(entry.service);
-                if (plugin != null) {
-                    Boolean result = plugin.shouldAllowBridgeAccess(url);
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        if (policyDecisionCache == null) {
+            return decideAllowBridgeAccess(url);
+        }
+        Boolean decision = policyDecisionCache.get(PolicyDecisionCache.KIND_BRIDGE_ACCESS, url);
+        if (decision == null) {
+            int generation = policyDecisionCache.getGeneration();
+            decision = decideAllowBridgeAccess(url);
+            policyDecisionCache.put(PolicyDecisionCache.KIND_BRIDGE_ACCESS, url, decision, generation);
+        }
+        return decision;
+    }
+
+    private boolean decideAllowBridgeAccess(String url) {
+        for (CordovaPlugin plugin : hookSubscribers[HOOK_SHOULD_ALLOW_BRIDGE_ACCESS]) {
+            Boolean result = plugin.shouldAllowBridgeAccess(url);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -492,15 +860,23 @@ public class PluginManager {
      *                  false to block the intent.
      */
     public Boolean shouldOpenExternalUrl(String url) {
-        synchronized (this.entryMap) {
-            for (PluginEntry entry : this.entryMap.values()) {
-                CordovaPlugin plugin = pluginMap.get(entry.service);
-                if (plugin != null) {
-                    Boolean result = plugin.shouldOpenExternalUrl(url);
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        if (policyDecisionCache == null) {
+            return decideOpenExternalUrl(url);
+        }
+        Boolean decision = policyDecisionCache.get(PolicyDecisionCache.KIND_EXTERNAL_URL, url);
+        if (decision == null) {
+            int generation = policyDecisionCache.getGeneration();
+            decision = decideOpenExternalUrl(url);
+            policyDecisionCache.put(PolicyDecisionCache.KIND_EXTERNAL_URL, url, decision, generation);
+        }
+        return decision;
+    }
+
+    private Boolean decideOpenExternalUrl(String url) {
+        for (CordovaPlugin plugin : hookSubscribers[HOOK_SHOULD_OPEN_EXTERNAL_URL]) {
+            Boolean result = plugin.shouldOpenExternalUrl(url);
+            if (result != null) {
+                return result;
             }
         }
         // Default policy:
@@ -508,6 +884,15 @@ public class PluginManager {
         return false;
     }
 
+    /**
+     * Returns the cache of shouldAllowRequest(), shouldAllowNavigation(),
+     * shouldAllowBridgeAccess() and shouldOpenExternalUrl() decisions, with its hit
+     * and miss counts, or null if the PolicyDecisionCacheSize preference isn't set.
+     */
+    public PolicyDecisionCache getPolicyDecisionCache() {
+        return policyDecisionCache;
+    }
+
     /**
      * Called when the URL of the WebView changes.
      *
@@ -515,15 +900,12 @@ public class PluginManager {
      * @return                  Return false to allow the URL to load, return true to prevent the URL from loading.
      */
     public boolean onOverrideUrlLoading(String url) {
-        synchronized (this.entryMap) {
-            for (PluginEntry entry : this.entryMap.values()) {
-                CordovaPlugin plugin = pluginMap.get(entry.service);
-                if (plugin != null && plugin.onOverrideUrlLoading(url)) {
-                    return true;
-                }
+        for (CordovaPlugin plugin : hookSubscribers[HOOK_ON_OVERRIDE_URL_LOADING]) {
+            if (plugin.onOverrideUrlLoading(url)) {
+                return true;
             }
-            return false;
         }
+        return false;
     }
 
     /**
@@ -540,14 +922,10 @@ public class PluginManager {
     }
 
     Uri remapUri(Uri uri) {
-        synchronized (this.pluginMap) {
-            for (CordovaPlugin plugin : this.pluginMap.values()) {
-                if (plugin != null) {
-                    Uri ret = plugin.remapUri(uri);
-                    if (ret != null) {
-                        return ret;
-                    }
-                }
+        for (CordovaPlugin plugin : hookSubscribers[HOOK_REMAP_URI]) {
+            Uri ret = plugin.remapUri(uri);
+            if (ret != null) {
+                return ret;
             }
         }
         return null;
@@ -579,6 +957,7 @@ public class PluginManager {
      * @param newConfig		The new device configuration
      */
     public void onConfigurationChanged(Configuration newConfig) {
+        awaitBackgroundInitializations();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
                 if (plugin != null) {
@@ -589,6 +968,7 @@ public class PluginManager {
     }
 
     public Bundle onSaveInstanceState() {
+        awaitBackgroundInitializations();
         Bundle state = new Bundle();
         synchronized (this.pluginMap) {
             for (CordovaPlugin plugin : this.pluginMap.values()) {
@@ -618,6 +998,17 @@ public class PluginManager {
         return handlers;
     }
 
+    /**
+     * Find the PathHandlers that should be asked about a path, without allocating.
+     * Plugins' getPathHandler() results are collected when the plugins are created.
+     *
+     * @param path      The asset path, without the leading "/"
+     * @return          unmodifiable list of PathHandlers in the order they should be asked
+     */
+    public List<CordovaPluginPathHandler> getPluginPathHandlers(String path) {
+        return pathHandlers.lookup(path);
+    }
+
     /**
      * Called when the WebView's render process has exited.
      *
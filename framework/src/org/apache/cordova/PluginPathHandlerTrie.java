@@ -0,0 +1,111 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie that maps an asset path to the plugin path handlers whose
+ * prefix it starts with. Every node holds the handlers of its own prefix followed by
+ * those of its ancestors, so a lookup walks the path once and allocates nothing.
+ */
+final class PluginPathHandlerTrie {
+    static final PluginPathHandlerTrie EMPTY = new PluginPathHandlerTrie(new ArrayList<CordovaPluginPathHandler>());
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        // Sorted, for binary search.
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        List<CordovaPluginPathHandler> handlers;
+    }
+
+    private static final class Builder {
+        final TreeMap<Character, Builder> children = new TreeMap<Character, Builder>();
+        final List<CordovaPluginPathHandler> handlers = new ArrayList<CordovaPluginPathHandler>();
+    }
+
+    private final Node root;
+
+    /**
+     * @param handlers  The handlers in the order they should be asked when prefixes are equal.
+     */
+    PluginPathHandlerTrie(List<CordovaPluginPathHandler> handlers) {
+        Builder rootBuilder = new Builder();
+        for (CordovaPluginPathHandler handler : handlers) {
+            Builder builder = rootBuilder;
+            String prefix = handler.getPathPrefix();
+            for (int i = 0; i < prefix.length(); i++) {
+                Character key = prefix.charAt(i);
+                Builder child = builder.children.get(key);
+                if (child == null) {
+                    child = new Builder();
+                    builder.children.put(key, child);
+                }
+                builder = child;
+            }
+            builder.handlers.add(handler);
+        }
+        root = freeze(rootBuilder, Collections.<CordovaPluginPathHandler>emptyList());
+    }
+
+    private static Node freeze(Builder builder, List<CordovaPluginPathHandler> inherited) {
+        Node node = new Node();
+        if (builder.handlers.isEmpty()) {
+            node.handlers = inherited;
+        } else {
+            List<CordovaPluginPathHandler> handlers = new ArrayList<CordovaPluginPathHandler>(builder.handlers);
+            handlers.addAll(inherited);
+            node.handlers = Collections.unmodifiableList(handlers);
+        }
+        int count = builder.children.size();
+        if (count > 0) {
+            node.keys = new char[count];
+            node.children = new Node[count];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : builder.children.entrySet()) {
+                node.keys[i] = entry.getKey();
+                node.children[i++] = freeze(entry.getValue(), node.handlers);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the handlers whose prefix the path starts with, longest prefix first.
+     */
+    List<CordovaPluginPathHandler> lookup(String path) {
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            int index = Arrays.binarySearch(node.keys, path.charAt(i));
+            if (index < 0) {
+                break;
+            }
+            node = node.children[index];
+        }
+        return node.handlers;
+    }
+}
@@ -31,6 +31,7 @@ public class PluginResult {
     private boolean keepCallback = false;
     private String strMessage;
     private String encodedMessage;
+    private byte[] binaryMessage;
     private List<PluginResult> multipartMessages;
 
     public PluginResult(Status status) {
@@ -80,7 +81,9 @@ public class PluginResult {
     public PluginResult(Status status, byte[] data, boolean binaryString) {
         this.status = status.ordinal();
         this.messageType = binaryString ? MESSAGE_TYPE_BINARYSTRING : MESSAGE_TYPE_ARRAYBUFFER;
-        this.encodedMessage = Base64.encodeToString(data, Base64.NO_WRAP);
+        // Base64 encoded on demand, since bridges that can transfer binary data don't need it.
+        // Copied because the result may be sent after the caller has reused its buffer.
+        this.binaryMessage = data.clone();
     }
 
     // The keepCallback and status of multipartMessages are ignored.
@@ -104,11 +107,23 @@ public class PluginResult {
 
     public String getMessage() {
         if (encodedMessage == null) {
-            encodedMessage = JSONObject.quote(strMessage);
+            if (binaryMessage != null) {
+                encodedMessage = Base64.encodeToString(binaryMessage, Base64.NO_WRAP);
+            } else {
+                encodedMessage = JSONObject.quote(strMessage);
+            }
         }
         return encodedMessage;
     }
 
+    /**
+     * @return the raw bytes when messageType is MESSAGE_TYPE_ARRAYBUFFER or
+     *         MESSAGE_TYPE_BINARYSTRING, otherwise null.
+     */
+    public byte[] getBinaryMessage() {
+        return binaryMessage;
+    }
+
     public int getMultipartMessagesSize() {
         return multipartMessages.size();
     }
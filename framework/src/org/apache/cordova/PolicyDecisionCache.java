@@ -0,0 +1,143 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers PluginManager's recent allow/deny decisions for each URL, so that pages
+ * requesting the same URLs over and over don't run every plugin's policy each time.
+ *
+ * <p>Decisions are cached per URL rather than per origin, because plugins and
+ * allow list paths can decide differently for each path. The cache is emptied when
+ * plugins are added or removed, and when any AllowList changes.</p>
+ *
+ * <p>data: and blob: URLs, and URLs longer than MAX_URL_LENGTH, aren't cached. They are
+ * rarely repeated and can be megabytes long, so they would only fill the cache.</p>
+ */
+public class PolicyDecisionCache {
+    public static final int KIND_REQUEST = 0;
+    public static final int KIND_NAVIGATION = 1;
+    public static final int KIND_BRIDGE_ACCESS = 2;
+    public static final int KIND_EXTERNAL_URL = 3;
+
+    public static final int MAX_URL_LENGTH = 2048;
+
+    // Bumped by invalidateAll(), so every cache notices on its next lookup.
+    private static final AtomicInteger globalGeneration = new AtomicInteger();
+
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    // Guarded by this.
+    private final LinkedHashMap<String, Boolean> decisions;
+    private int generation;
+    private int seenGlobalGeneration;
+
+    public PolicyDecisionCache(int maxSize) {
+        this.maxSize = maxSize;
+        decisions = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > PolicyDecisionCache.this.maxSize;
+            }
+        };
+        seenGlobalGeneration = globalGeneration.get();
+    }
+
+    /**
+     * Empties every cache in the process. Called when an input to the decisions, such
+     * as an AllowList, changes.
+     */
+    public static void invalidateAll() {
+        globalGeneration.incrementAndGet();
+    }
+
+    private static String key(int kind, String url) {
+        return kind + url;
+    }
+
+    private static boolean isCacheable(String url) {
+        return url != null && url.length() <= MAX_URL_LENGTH
+                && !url.regionMatches(true, 0, "data:", 0, 5)
+                && !url.regionMatches(true, 0, "blob:", 0, 5);
+    }
+
+    /**
+     * Returns the cached decision, or null if there isn't one.
+     */
+    public synchronized Boolean get(int kind, String url) {
+        checkGlobalGeneration();
+        Boolean decision = isCacheable(url) ? decisions.get(key(kind, url)) : null;
+        if (decision != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return decision;
+    }
+
+    /**
+     * Returns a token to pass to put(), taken before the decision is made, so that a
+     * decision made while the cache was being invalidated isn't kept.
+     */
+    public synchronized int getGeneration() {
+        checkGlobalGeneration();
+        return generation;
+    }
+
+    public synchronized void put(int kind, String url, Boolean decision, int generation) {
+        checkGlobalGeneration();
+        if (decision != null && generation == this.generation && isCacheable(url)) {
+            decisions.put(key(kind, url), decision);
+        }
+    }
+
+    public synchronized void clear() {
+        decisions.clear();
+        generation++;
+    }
+
+    private void checkGlobalGeneration() {
+        int global = globalGeneration.get();
+        if (global != seenGlobalGeneration) {
+            seenGlobalGeneration = global;
+            clear();
+        }
+    }
+
+    public synchronized int size() {
+        return decisions.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova;
+
+import android.graphics.Color;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A frozen copy of CordovaPreferences that is cheap to read from any thread.
+ *
+ * <p>Names are matched case-insensitively like CordovaPreferences, but each spelling
+ * used by a caller is only lower-cased once. Typed values are parsed on first use and
+ * kept. Values that fail to parse still throw, as they do from CordovaPreferences.</p>
+ *
+ * <p>Get one from CordovaPreferences.getSnapshot(), which makes a new one after the
+ * preferences are changed.</p>
+ */
+public final class PreferenceSnapshot {
+    private static final String SCHEME_HTTPS = "https";
+    private static final String DEFAULT_HOSTNAME = "localhost";
+    // Callers use a handful of spellings; anything past this is looked up every time.
+    private static final int MAX_LOOKUPS = 256;
+
+    /**
+     * One preference, with its typed values filled in as they are asked for. The
+     * fields may be parsed twice by racing threads, which is harmless.
+     */
+    private static final class Entry {
+        final String value;
+        Boolean booleanValue;
+        Integer intValue;
+        Double doubleValue;
+        Integer colorValue;
+
+        Entry(String value) {
+            this.value = value;
+        }
+    }
+
+    private static final Entry MISSING = new Entry(null);
+
+    private final Map<String, Entry> entries;
+    // Every spelling of a name that has been looked up, including misses.
+    private final ConcurrentHashMap<String, Entry> lookups = new ConcurrentHashMap<String, Entry>();
+    private final String launchUrlPrefix;
+
+    PreferenceSnapshot(Map<String, String> preferences) {
+        HashMap<String, Entry> entries = new HashMap<String, Entry>(preferences.size() * 2);
+        for (Map.Entry<String, String> preference : preferences.entrySet()) {
+            if (preference.getValue() != null) {
+                String name = preference.getKey().toLowerCase(Locale.ENGLISH).intern();
+                entries.put(name, new Entry(preference.getValue()));
+            }
+        }
+        this.entries = Collections.unmodifiableMap(entries);
+
+        if (!getBoolean("AndroidInsecureFileModeEnabled", false)) {
+            String scheme = getString("scheme", SCHEME_HTTPS).toLowerCase(Locale.ENGLISH);
+            String hostname = getString("hostname", DEFAULT_HOSTNAME).toLowerCase(Locale.ENGLISH);
+            launchUrlPrefix = scheme + "://" + hostname + '/';
+        } else {
+            launchUrlPrefix = "file://";
+        }
+    }
+
+    private Entry lookup(String name) {
+        Entry entry = lookups.get(name);
+        if (entry == null) {
+            entry = entries.get(name.toLowerCase(Locale.ENGLISH));
+            if (entry == null) {
+                entry = MISSING;
+            }
+            if (lookups.size() < MAX_LOOKUPS) {
+                lookups.putIfAbsent(name, entry);
+            }
+        }
+        return entry;
+    }
+
+    public boolean contains(String name) {
+        return lookup(name) != MISSING;
+    }
+
+    public String getString(String name, String defaultValue) {
+        Entry entry = lookup(name);
+        return entry != MISSING ? entry.value : defaultValue;
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        Entry entry = lookup(name);
+        if (entry == MISSING) {
+            return defaultValue;
+        }
+        Boolean value = entry.booleanValue;
+        if (value == null) {
+            value = Boolean.parseBoolean(entry.value);
+            entry.booleanValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * Reads the value like CordovaPreferences.getInteger(), so 32-bit hex values such
+     * as 0x80000000 keep their bit pattern.
+     */
+    public int getInteger(String name, int defaultValue) {
+        Entry entry = lookup(name);
+        if (entry == MISSING) {
+            return defaultValue;
+        }
+        Integer value = entry.intValue;
+        if (value == null) {
+            value = (int)(long)Long.decode(entry.value);
+            entry.intValue = value;
+        }
+        return value;
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        Entry entry = lookup(name);
+        if (entry == MISSING) {
+            return defaultValue;
+        }
+        Double value = entry.doubleValue;
+        if (value == null) {
+            value = Double.valueOf(entry.value);
+            entry.doubleValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * Reads a color written as #RRGGBB, #AARRGGBB or an integer such as 0xAARRGGBB.
+     *
+     * @throws IllegalArgumentException if the value is not a color.
+     */
+    public int getColor(String name, int defaultValue) {
+        Entry entry = lookup(name);
+        if (entry == MISSING) {
+            return defaultValue;
+        }
+        Integer value = entry.colorValue;
+        if (value == null) {
+            value = entry.value.startsWith("#")
+                    ? Color.parseColor(entry.value)
+                    : (int)(long)Long.decode(entry.value);
+            entry.colorValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * The start of URLs that belong to the app: the scheme and hostname preferences
+     * as a URL, or "file://" when AndroidInsecureFileModeEnabled is set.
+     */
+    public String getLaunchUrlPrefix() {
+        return launchUrlPrefix;
+    }
+
+    /**
+     * Preferences by lower case name.
+     */
+    public Map<String, String> getAll() {
+        HashMap<String, String> all = new HashMap<String, String>(entries.size() * 2);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            all.put(entry.getKey(), entry.getValue().value);
+        }
+        return all;
+    }
+}
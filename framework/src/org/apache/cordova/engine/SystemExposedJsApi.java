@@ -21,7 +21,7 @@ package org.apache.cordova.engine;
 import android.webkit.JavascriptInterface;
 
 import org.apache.cordova.CordovaBridge;
-import org.apache.cordova.ExposedJsApi;
+import org.apache.cordova.ExposedJsBatchApi;
 import org.json.JSONException;
 
 /**
@@ -29,7 +29,7 @@ import org.json.JSONException;
  * an equivalent entry in CordovaChromeClient.java, and be added to
  * cordova-js/lib/android/plugin/android/promptbasednativeapi.js
  */
-class SystemExposedJsApi implements ExposedJsApi {
+class SystemExposedJsApi implements ExposedJsBatchApi {
     private final CordovaBridge bridge;
 
     SystemExposedJsApi(CordovaBridge bridge) {
@@ -42,6 +42,12 @@ class SystemExposedJsApi implements ExposedJsApi {
         return bridge.jsExec(bridgeSecret, service, action, callbackId, arguments);
     }
 
+    @JavascriptInterface
+    @Override
+    public String execBatch(int bridgeSecret, String calls) throws JSONException, IllegalAccessException {
+        return bridge.jsExecBatch(bridgeSecret, calls);
+    }
+
     @JavascriptInterface
     @Override
     public void setNativeToJsBridgeMode(int bridgeSecret, int value) throws IllegalAccessException {
@@ -0,0 +1,146 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova.engine;
+
+import android.net.Uri;
+
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.LOG;
+import org.apache.cordova.NativeToJsMessageQueue;
+
+import java.util.ArrayList;
+
+/**
+ * Sends messages to JS through a WebMessagePort.
+ *
+ * <p>When the mode is selected, a message channel is created and one end is posted to
+ * the page as a "gap_port" message, which exec.js picks up. Each queued message is then
+ * posted to the port as a string. ArrayBuffer and binary string results are posted as
+ * ArrayBuffers ahead of the message that refers to them, so they are never Base64
+ * encoded.</p>
+ */
+class SystemWebMessageBridgeMode extends NativeToJsMessageQueue.UiThreadBridgeMode {
+    private static final String LOG_TAG = "WebMessageBridgeMode";
+    private static final String PORT_MESSAGE = "gap_port";
+    // nativeToJsModes.WEB_MESSAGE in exec.js.
+    static final int MODE = 4;
+
+    private final SystemWebViewEngine engine;
+    private final boolean arrayBuffersSupported;
+    private WebMessagePortCompat port; // Only accessed on the UI thread.
+
+    SystemWebMessageBridgeMode(SystemWebViewEngine engine, CordovaInterface cordova) {
+        super(cordova);
+        this.engine = engine;
+        arrayBuffersSupported = WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+    }
+
+    static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE);
+    }
+
+    @Override
+    public boolean flushesAsJs() {
+        return false;
+    }
+
+    @Override
+    public boolean detachesBinaryPayloads() {
+        return arrayBuffersSupported;
+    }
+
+    @Override
+    public void reset() {
+        // Called when the page selects this mode, so give the current page a new channel.
+        cordova.getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                openChannel();
+            }
+        });
+    }
+
+    private void openChannel() {
+        if (port != null) {
+            port.close();
+            port = null;
+        }
+        Uri targetOrigin = getTargetOrigin();
+        if (targetOrigin == null) {
+            LOG.w(LOG_TAG, "Page has no origin to post the message channel to, falling back to evaluateJavascript");
+            return;
+        }
+        try {
+            WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(engine.webView);
+            WebViewCompat.postWebMessage(engine.webView,
+                    new WebMessageCompat(PORT_MESSAGE, new WebMessagePortCompat[] { ports[1] }),
+                    targetOrigin);
+            port = ports[0];
+        } catch (RuntimeException e) {
+            LOG.e(LOG_TAG, "Failed to open message channel, falling back to evaluateJavascript", e);
+        }
+    }
+
+    /**
+     * Only the page that selected this mode should receive the port, so this is null
+     * unless the page has an origin that can be targeted.
+     */
+    private Uri getTargetOrigin() {
+        String url = engine.webView.getUrl();
+        Uri uri = url == null ? null : Uri.parse(url);
+        if (uri != null && ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+            return Uri.parse(uri.getScheme() + "://" + uri.getEncodedAuthority());
+        }
+        // Opaque origins such as file:// could only be targeted with a wildcard, which
+        // would hand every plugin result to whatever document is loaded.
+        return null;
+    }
+
+    @Override
+    protected void flush(NativeToJsMessageQueue queue) {
+        if (port == null) {
+            super.flush(queue);
+            return;
+        }
+        ArrayList<byte[]> binaryPayloads = arrayBuffersSupported ? new ArrayList<byte[]>() : null;
+        String message;
+        while ((message = queue.popAndEncodeAsWebMessage(binaryPayloads)) != null) {
+            if (binaryPayloads != null) {
+                for (byte[] data : binaryPayloads) {
+                    port.postMessage(new WebMessageCompat(data));
+                }
+                binaryPayloads.clear();
+            }
+            port.postMessage(new WebMessageCompat(message));
+        }
+    }
+
+    @Override
+    protected void sendJavascript(String js) {
+        engine.evaluateJavascript(js, null);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.apache.cordova.engine;
+
+import android.app.Activity;
+import android.net.Uri;
+import android.webkit.WebView;
+
+import androidx.webkit.JavaScriptReplyProxy;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.apache.cordova.CordovaBridge;
+import org.apache.cordova.LOG;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receives exec() calls posted to the window._cordovaWebMessage object that
+ * WebViewCompat.addWebMessageListener() injects into each frame.
+ *
+ * <p>Unlike SystemExposedJsApi, calls don't block the JS thread, and every message is
+ * checked against the sender's origin instead of a bridge secret. Messages mirror the
+ * prompt() bridge:</p>
+ * <ul>
+ *   <li>"gap_init:" + nativeToJsBridgeMode</li>
+ *   <li>"gap_bridge_mode:" + nativeToJsBridgeMode</li>
+ *   <li>"gap_poll:" + (fromOnlineEvent ? 1 : 0)</li>
+ *   <li>"gap:" + JSON [service, action, callbackId, argsJson, arrayBufferIndices]</li>
+ * </ul>
+ * <p>ArrayBuffer arguments are posted as binary messages ahead of the exec message and
+ * stand in for the arguments at arrayBufferIndices. They reach the plugin's CordovaArgs
+ * as they are, without a round trip through Base64. Messages that exec() would have
+ * returned are posted back to the frame.</p>
+ */
+class SystemWebMessageExecApi implements WebViewCompat.WebMessageListener {
+    private static final String LOG_TAG = "WebMessageExecApi";
+    static final String JS_OBJECT_NAME = "_cordovaWebMessage";
+    // More ArrayBuffers than any exec() call posts, so a frame can't buffer without limit.
+    static final int MAX_PENDING_ARRAY_BUFFERS = 64;
+
+    private final CordovaBridge bridge;
+    private final Activity activity;
+    // Runs calls in the order they were posted, off the UI thread like the JavaBridge thread.
+    private final ExecutorService execThread = Executors.newSingleThreadExecutor();
+    // ArrayBuffers waiting for their exec message, per frame. Only accessed on the UI thread.
+    private final Map<JavaScriptReplyProxy, List<byte[]>> pendingArrayBuffers = new WeakHashMap<JavaScriptReplyProxy, List<byte[]>>();
+
+    SystemWebMessageExecApi(CordovaBridge bridge, Activity activity) {
+        this.bridge = bridge;
+        this.activity = activity;
+    }
+
+    static boolean isSupported() {
+        // exec.js posts ArrayBuffer arguments without checking.
+        return WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_LISTENER)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+    }
+
+    void register(WebView webView) {
+        // Origins are checked per message against CordovaBridge, which knows the app's policy.
+        WebViewCompat.addWebMessageListener(webView, JS_OBJECT_NAME, Collections.singleton("*"), this);
+    }
+
+    void destroy() {
+        execThread.shutdown();
+    }
+
+    @Override
+    public void onPostMessage(WebView view, WebMessageCompat message, Uri sourceOrigin, boolean isMainFrame, final JavaScriptReplyProxy replyProxy) {
+        final String origin = sourceOrigin.toString();
+        // Before anything the message carries is kept, since any frame can post to the listener.
+        if (!bridge.isOriginAllowed(origin)) {
+            LOG.e(LOG_TAG, "Bridge message from restricted origin: " + origin);
+            return;
+        }
+        if (message.getType() == WebMessageCompat.TYPE_ARRAY_BUFFER) {
+            List<byte[]> buffers = pendingArrayBuffers.get(replyProxy);
+            if (buffers == null) {
+                buffers = new ArrayList<byte[]>();
+                pendingArrayBuffers.put(replyProxy, buffers);
+            } else if (buffers.size() >= MAX_PENDING_ARRAY_BUFFERS) {
+                // The exec message that follows is rejected for missing them.
+                LOG.e(LOG_TAG, "Too many ArrayBuffers from " + origin + " without an exec message");
+                pendingArrayBuffers.remove(replyProxy);
+                return;
+            }
+            buffers.add(message.getArrayBuffer());
+            return;
+        }
+        final String data = message.getData();
+        if (data == null) {
+            return;
+        }
+        final List<byte[]> buffers = pendingArrayBuffers.remove(replyProxy);
+        execThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reply(replyProxy, handleMessage(origin, data, buffers));
+                } catch (JSONException e) {
+                    LOG.e(LOG_TAG, "Malformed bridge message from " + origin, e);
+                } catch (IllegalAccessException e) {
+                    // Already logged by CordovaBridge.
+                } catch (RuntimeException e) {
+                    LOG.e(LOG_TAG, "Bridge message from " + origin + " failed", e);
+                }
+            }
+        });
+    }
+
+    String handleMessage(String origin, String data, List<byte[]> buffers) throws JSONException, IllegalAccessException {
+        if (data.startsWith("gap:")) {
+            JSONArray array = new JSONArray(data.substring(4));
+            byte[][] arrayBuffers = null;
+            JSONArray indices = array.optJSONArray(4);
+            if (indices != null && indices.length() > 0) {
+                // Indices come from the page, so they must be within the arguments.
+                int argCount = new JSONArray(array.getString(3)).length();
+                arrayBuffers = toArrayBuffers(indices, buffers, argCount);
+            }
+            return bridge.originExec(origin, array.getString(0), array.getString(1), array.getString(2), array.getString(3), arrayBuffers);
+        } else if (data.startsWith("gap_bridge_mode:")) {
+            bridge.originSetNativeToJsBridgeMode(origin, Integer.parseInt(data.substring(16)));
+        } else if (data.startsWith("gap_poll:")) {
+            return bridge.originRetrieveJsMessages(origin, "1".equals(data.substring(9)));
+        } else if (data.startsWith("gap_init:")) {
+            bridge.originInit(origin, Integer.parseInt(data.substring(9)));
+        }
+        return null;
+    }
+
+    /**
+     * Places the ArrayBuffers at the argument indices they were posted for.
+     */
+    private static byte[][] toArrayBuffers(JSONArray indices, List<byte[]> buffers, int argCount) throws JSONException {
+        if (buffers == null || buffers.size() != indices.length()) {
+            throw new JSONException("Expected " + indices.length() + " ArrayBuffers");
+        }
+        byte[][] arrayBuffers = new byte[argCount][];
+        for (int i = 0; i < indices.length(); i++) {
+            int index = indices.getInt(i);
+            if (index < 0 || index >= argCount) {
+                throw new JSONException("Bad ArrayBuffer index: " + index);
+            }
+            arrayBuffers[index] = buffers.get(i);
+        }
+        return arrayBuffers;
+    }
+
+    private void reply(final JavaScriptReplyProxy replyProxy, final String messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        activity.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                replyProxy.postMessage(messages);
+            }
+        });
+    }
+}
@@ -18,6 +18,7 @@
 */
 package org.apache.cordova.engine;
 
+import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
@@ -37,18 +38,31 @@ import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
+import org.apache.cordova.AssetCache;
+import org.apache.cordova.AssetManifest;
+import org.apache.cordova.AssetPrefetchProfile;
+import org.apache.cordova.AssetResponseHeaders;
 import org.apache.cordova.AuthenticationToken;
+import org.apache.cordova.ByteRange;
 import org.apache.cordova.CordovaClientCertRequest;
 import org.apache.cordova.CordovaHttpAuthHandler;
 import org.apache.cordova.CordovaPluginPathHandler;
 import org.apache.cordova.CordovaResourceApi;
 import org.apache.cordova.LOG;
+import org.apache.cordova.MappedAssets;
 import org.apache.cordova.PluginManager;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import androidx.webkit.WebViewAssetLoader;
 
@@ -64,6 +78,13 @@ public class SystemWebViewClient extends WebViewClient {
     private static final String TAG = "SystemWebViewClient";
     protected final SystemWebViewEngine parentEngine;
     private final WebViewAssetLoader assetLoader;
+    private final AssetCache assetCache;
+    private final MappedAssets mappedAssets;
+    private final AssetManifest assetManifest;
+    private final AssetResponseHeaders assetResponseHeaders;
+    // Content-Encodings that lib/prepare.js precompressed www/ assets with, in order of preference.
+    private final List<String> precompressedEncodings = new ArrayList<String>();
+    private final Set<String> missingPrecompressedAssets = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private boolean doClearHistory = false;
     boolean isCurrentlyLoading;
 
@@ -73,6 +94,29 @@ public class SystemWebViewClient extends WebViewClient {
     public SystemWebViewClient(SystemWebViewEngine parentEngine) {
         this.parentEngine = parentEngine;
 
+        // Serves repeated requests for the same www/ assets from memory. Off by default.
+        int assetCacheSizeKB = parentEngine.preferences.getInteger("AssetCacheSizeKB", 0);
+        assetCache = assetCacheSizeKB > 0
+                ? AssetCache.getInstance(parentEngine.webView.getContext().getAssets(), assetCacheSizeKB * 1024)
+                : null;
+
+        // Serves www/ assets at least this large from mappings of the APK. Off by default.
+        int mappedAssetMinSizeKB = parentEngine.preferences.getInteger("MappedAssetMinSizeKB", 0);
+        mappedAssets = mappedAssetMinSizeKB > 0
+                ? new MappedAssets(parentEngine.webView.getContext().getAssets(), mappedAssetMinSizeKB * 1024L)
+                : null;
+
+        for (String encoding : parentEngine.preferences.getString("PrecompressAssets", "").split(",")) {
+            encoding = encoding.trim().toLowerCase();
+            if ("br".equals(encoding) || "gzip".equals(encoding)) {
+                precompressedEncodings.add(encoding);
+            }
+        }
+
+        // Lists every www/ asset when the AssetManifest preference is enabled.
+        assetManifest = AssetManifest.getInstance(parentEngine.webView.getContext().getAssets());
+        assetResponseHeaders = new AssetResponseHeaders(assetManifest, getLastUpdateTime());
+
         WebViewAssetLoader.Builder assetLoaderBuilder = new WebViewAssetLoader.Builder()
                 .setDomain(parentEngine.preferences.getString("hostname", "localhost").toLowerCase())
                 .setHttpAllowed(true);
@@ -82,34 +126,46 @@ public class SystemWebViewClient extends WebViewClient {
                 // Check if there a plugins with pathHandlers
                 PluginManager pluginManager = this.parentEngine.pluginManager;
                 if (pluginManager != null) {
-                    for (CordovaPluginPathHandler handler : pluginManager.getPluginPathHandlers()) {
-                        if (handler.getPathHandler() != null) {
-                            WebResourceResponse response = handler.getPathHandler().handle(path);
-                            if (response != null) {
-                                return response;
-                            }
-                        };
+                    List<CordovaPluginPathHandler> handlers = pluginManager.getPluginPathHandlers(path);
+                    for (int i = 0; i < handlers.size(); i++) {
+                        WebResourceResponse response = handlers.get(i).getPathHandler().handle(path);
+                        if (response != null) {
+                            return response;
+                        }
                     }
                 }
 
                 if (path.isEmpty()) {
                     path = "index.html";
                 }
-                InputStream is = parentEngine.webView.getContext().getAssets().open("www/" + path, AssetManager.ACCESS_STREAMING);
-                String mimeType = "text/html";
-                String extension = MimeTypeMap.getFileExtensionFromUrl(path);
-                if (extension != null) {
-                    if (path.endsWith(".js") || path.endsWith(".mjs")) {
-                        // Make sure JS files get the proper mimetype to support ES modules
-                        mimeType = "application/javascript";
-                    } else if (path.endsWith(".wasm")) {
-                        mimeType = "application/wasm";
-                    } else {
-                        mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+                String mimeType = null;
+                AssetManifest.Entry entry = null;
+                if (assetManifest != null) {
+                    entry = assetManifest.getWwwEntry(path);
+                    if (entry == null) {
+                        // Not in the app, so don't look for it in the APK.
+                        return new WebResourceResponse("text/plain", "UTF-8", 404, "Not Found", null, null);
                     }
+                    mimeType = entry.getMimeType();
                 }
-
-                return new WebResourceResponse(mimeType, null, is);
+                if (mimeType == null) {
+                    mimeType = getMimeType(path);
+                }
+                for (String encoding : precompressedEncodings) {
+                    InputStream is = openPrecompressedAsset("www/" + path, encoding);
+                    if (is != null) {
+                        // The WebView decodes the body itself.
+                        return new WebResourceResponse(mimeType, null, 200, "OK",
+                                assetResponseHeaders.get("www/" + path, encoding), is);
+                    }
+                }
+                InputStream is = openAsset("www/" + path);
+                Map<String, String> headers = assetResponseHeaders.get("www/" + path, null);
+                // Lets interceptAssetRequest() answer Range requests. For assets, available()
+                // is the length of the uncompressed data.
+                headers.put("Accept-Ranges", "bytes");
+                headers.put("Content-Length", Long.toString(entry != null ? entry.getSize() : is.available()));
+                return new WebResourceResponse(mimeType, null, 200, "OK", headers, is);
             } catch (Exception e) {
                 e.printStackTrace();
                 LOG.e(TAG, "Exception handling Web resource at \"" + path + "\"", e);
@@ -126,12 +182,142 @@ public class SystemWebViewClient extends WebViewClient {
             controller.setServiceWorkerClient(new ServiceWorkerClient(){
                 @Override
                 public WebResourceResponse shouldInterceptRequest(WebResourceRequest request) {
-                    return assetLoader.shouldInterceptRequest(request.getUrl());
+                    return interceptAssetRequest(request);
                 }
             });
         }
     }
 
+    private WebResourceResponse interceptAssetRequest(WebResourceRequest request) {
+        WebResourceResponse response = assetLoader.shouldInterceptRequest(request.getUrl());
+        if (response != null) {
+            // WebResourceResponse doesn't allow a 304, so a matching request still gets
+            // the body. This only records how often the client's copy was current.
+            assetResponseHeaders.isNotModified(request.getRequestHeaders(), response.getResponseHeaders());
+            String rangeHeader = request.getRequestHeaders() != null
+                    ? AssetResponseHeaders.getHeader(request.getRequestHeaders(), "Range")
+                    : null;
+            if (rangeHeader != null && response.getStatusCode() == 200) {
+                response = getPartialResponse(response, rangeHeader);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Narrows a response to the byte range that a media element asked for, so that
+     * seeking doesn't restart the stream. Responses without a Content-Length, including
+     * precompressed ones, are returned whole.
+     */
+    private static WebResourceResponse getPartialResponse(WebResourceResponse response, String rangeHeader) {
+        Map<String, String> headers = response.getResponseHeaders();
+        if (headers == null || response.getData() == null
+                || AssetResponseHeaders.getHeader(headers, "Content-Encoding") != null) {
+            return response;
+        }
+        String contentLength = AssetResponseHeaders.getHeader(headers, "Content-Length");
+        ByteRange range;
+        try {
+            range = ByteRange.parse(rangeHeader, contentLength != null ? Long.parseLong(contentLength) : -1);
+        } catch (NumberFormatException e) {
+            return response;
+        }
+        if (range == null) {
+            return response;
+        }
+        Map<String, String> partialHeaders = new HashMap<String, String>(headers);
+        try {
+            if (!range.isSatisfiable()) {
+                response.getData().close();
+                partialHeaders.remove("Content-Length");
+                partialHeaders.put("Content-Range", range.getUnsatisfiedContentRange());
+                return new WebResourceResponse(response.getMimeType(), response.getEncoding(), 416, "Range Not Satisfiable", partialHeaders, null);
+            }
+            InputStream is = range.open(response.getData());
+            partialHeaders.put("Content-Range", range.getContentRange());
+            partialHeaders.put("Content-Length", Long.toString(range.getLength()));
+            return new WebResourceResponse(response.getMimeType(), response.getEncoding(), 206, "Partial Content", partialHeaders, is);
+        } catch (IOException e) {
+            LOG.e(TAG, "Failed to serve range " + rangeHeader, e);
+            return null;
+        }
+    }
+
+    private long getLastUpdateTime() {
+        try {
+            Context context = parentEngine.webView.getContext();
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private InputStream openAsset(String assetPath) throws IOException {
+        AssetPrefetchProfile prefetchProfile = AssetPrefetchProfile.getInstance();
+        if (prefetchProfile != null) {
+            prefetchProfile.record(assetPath);
+        }
+        if (mappedAssets != null) {
+            InputStream is = mappedAssets.open(assetPath);
+            if (is != null) {
+                return is;
+            }
+        }
+        return assetCache != null
+                ? assetCache.open(assetPath)
+                : parentEngine.webView.getContext().getAssets().open(assetPath, AssetManager.ACCESS_STREAMING);
+    }
+
+    /**
+     * Opens the variant of an asset that lib/prepare.js compressed with the given
+     * Content-Encoding, or returns null if there isn't one.
+     */
+    private InputStream openPrecompressedAsset(String assetPath, String encoding) {
+        String variantPath = assetPath + ("br".equals(encoding) ? ".br" : ".gz");
+        if (assetManifest != null ? assetManifest.get(variantPath) == null : missingPrecompressedAssets.contains(variantPath)) {
+            return null;
+        }
+        try {
+            return openAsset(variantPath);
+        } catch (IOException e) {
+            // Most assets are not compressed, so only look for each variant once.
+            missingPrecompressedAssets.add(variantPath);
+            return null;
+        }
+    }
+
+    private static String getMimeType(String path) {
+        String mimeType = "text/html";
+        String extension = MimeTypeMap.getFileExtensionFromUrl(path);
+        if (extension != null) {
+            if (path.endsWith(".js") || path.endsWith(".mjs")) {
+                // Make sure JS files get the proper mimetype to support ES modules
+                mimeType = "application/javascript";
+            } else if (path.endsWith(".wasm")) {
+                mimeType = "application/wasm";
+            } else {
+                mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+            }
+        }
+        return mimeType;
+    }
+
+    /**
+     * Returns the cache of www/ assets, which is shared by the WebView and service
+     * workers, or null if the AssetCacheSizeKB preference isn't set.
+     */
+    public AssetCache getAssetCache() {
+        return assetCache;
+    }
+
+    /**
+     * Returns the source of the validator and Cache-Control headers on www/ assets,
+     * which counts how often conditional requests matched.
+     */
+    public AssetResponseHeaders getAssetResponseHeaders() {
+        return assetResponseHeaders;
+    }
+
     /**
      * Give the host application a chance to take over the control when a new url
      * is about to be loaded in the current WebView.
@@ -435,7 +621,7 @@ public class SystemWebViewClient extends WebViewClient {
 
     @Override
     public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
-        return this.assetLoader.shouldInterceptRequest(request.getUrl());
+        return interceptAssetRequest(request);
     }
 
     @Override
@@ -70,6 +70,7 @@ public class SystemWebViewEngine implements CordovaWebViewEngine {
     protected CordovaResourceApi resourceApi;
     protected NativeToJsMessageQueue nativeToJsMessageQueue;
     private BroadcastReceiver receiver;
+    private SystemWebMessageExecApi webMessageExecApi;
 
     /** Used when created via reflection. */
     public SystemWebViewEngine(Context context, CordovaPreferences preferences) {
@@ -121,9 +122,29 @@ public class SystemWebViewEngine implements CordovaWebViewEngine {
                 SystemWebViewEngine.this.cordova.getActivity().runOnUiThread(r);
             }
         }));
-        nativeToJsMessageQueue.addBridgeMode(new NativeToJsMessageQueue.EvalBridgeMode(this, cordova));
+        NativeToJsMessageQueue.EvalBridgeMode evalBridgeMode = new NativeToJsMessageQueue.EvalBridgeMode(this, cordova);
+        // Coalesces messages that arrive within this many ms (0 = one Choreographer frame).
+        evalBridgeMode.setFlushWindow(preferences.getInteger("NativeToJsFlushWindow", NativeToJsMessageQueue.UiThreadBridgeMode.FLUSH_IMMEDIATELY));
+        nativeToJsMessageQueue.addBridgeMode(evalBridgeMode);
+        if (SystemWebMessageBridgeMode.isSupported()) {
+            SystemWebMessageBridgeMode webMessageBridgeMode = new SystemWebMessageBridgeMode(this, cordova);
+            webMessageBridgeMode.setFlushWindow(preferences.getInteger("NativeToJsFlushWindow", NativeToJsMessageQueue.UiThreadBridgeMode.FLUSH_IMMEDIATELY));
+            nativeToJsMessageQueue.addBridgeMode(webMessageBridgeMode);
+        } else {
+            // Keep the mode numbering stable for exec.js.
+            nativeToJsMessageQueue.addBridgeMode(evalBridgeMode);
+        }
         bridge = new CordovaBridge(pluginManager, nativeToJsMessageQueue);
+        // Registered either way, so pages can select it, but only suggested when asked for.
+        if (preferences.getBoolean("WebMessageBridge", false) && SystemWebMessageBridgeMode.isSupported()) {
+            bridge.setPreferredNativeToJsBridgeMode(SystemWebMessageBridgeMode.MODE);
+        }
+        bridge.setExecBatchingEnabled(preferences.getBoolean("ExecBatching", false));
         exposeJsInterface(webView, bridge);
+        if (preferences.getBoolean("WebMessageExec", false) && SystemWebMessageExecApi.isSupported()) {
+            webMessageExecApi = new SystemWebMessageExecApi(bridge, cordova.getActivity());
+            webMessageExecApi.register(webView);
+        }
     }
 
     @Override
@@ -311,6 +332,9 @@ public class SystemWebViewEngine implements CordovaWebViewEngine {
     @Override
     public void destroy() {
         webView.chromeClient.destroyLastDialog();
+        if (webMessageExecApi != null) {
+            webMessageExecApi.destroy();
+        }
         webView.destroy();
         // unregister the receiver
         if (receiver != null) {
@@ -19,6 +19,8 @@
 
 const fs = require('node:fs');
 const path = require('node:path');
+const crypto = require('node:crypto');
+const zlib = require('node:zlib');
 const nopt = require('nopt');
 const glob = require('fast-glob');
 const dedent = require('dedent');
@@ -65,6 +67,8 @@ module.exports.prepare = function (cordovaProject, options) {
 
     // Update own www dir with project's www assets and plugins' assets and js-files
     return Promise.resolve(updateWww(cordovaProject, this.locations))
+        .then(() => precompressWww(self._config, self.locations))
+        .then(() => updateAssetManifest(self._config, self.locations))
         .then(() => warnForDeprecatedSplashScreen(cordovaProject))
         .then(() => updateProjectAccordingTo(self._config, self.locations))
         .then(function () {
@@ -251,12 +255,180 @@ function updateWww (cordovaProject, destinations) {
         sourceDirs, targetDir, { rootDir: cordovaProject.root }, logFileOp);
 }
 
+// Text assets that compress well enough to be worth serving precompressed.
+const PRECOMPRESSIBLE_EXTENSIONS = ['.html', '.htm', '.js', '.mjs', '.css', '.json', '.map', '.svg', '.txt', '.xml', '.wasm'];
+
+const PRECOMPRESSED_VARIANTS = {
+    gzip: {
+        extension: '.gz',
+        compress: data => zlib.gzipSync(data, { level: zlib.constants.Z_BEST_COMPRESSION })
+    },
+    br: {
+        extension: '.br',
+        compress: data => zlib.brotliCompressSync(data, {
+            params: {
+                [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+                [zlib.constants.BROTLI_PARAM_SIZE_HINT]: data.length
+            }
+        })
+    }
+};
+
+/**
+ * Writes gzip and/or brotli variants of the text assets in the platform 'www'
+ *   directory, as selected by the PrecompressAssets preference (for example
+ *   "br,gzip"). SystemWebViewClient serves them with a Content-Encoding header.
+ *   A variant is only kept if it is smaller than the original.
+ *
+ * @param   {ConfigParser}  platformConfig  A project's configuration
+ * @param   {Object}  locations       A map of locations for this platform
+ */
+function precompressWww (platformConfig, locations) {
+    const encodings = (platformConfig.getPreference('PrecompressAssets', 'android') || '')
+        .split(',')
+        .map(encoding => encoding.trim().toLowerCase())
+        .filter(encoding => PRECOMPRESSED_VARIANTS[encoding]);
+    if (encodings.length === 0) {
+        return;
+    }
+
+    const files = glob.sync('**/*', { cwd: locations.www, onlyFiles: true })
+        .filter(file => PRECOMPRESSIBLE_EXTENSIONS.includes(path.extname(file).toLowerCase()));
+    events.emit('verbose', 'Precompressing ' + files.length + ' www assets with ' + encodings.join(', '));
+
+    for (const file of files) {
+        const filePath = path.join(locations.www, file);
+        const data = fs.readFileSync(filePath);
+        for (const encoding of encodings) {
+            const variant = PRECOMPRESSED_VARIANTS[encoding];
+            const compressed = variant.compress(data);
+            if (compressed.length < data.length) {
+                fs.writeFileSync(filePath + variant.extension, compressed);
+            }
+        }
+    }
+}
+
+// Read by AssetManifest.java. Keep the two in sync.
+const ASSET_MANIFEST_FILE = 'cordova-asset-manifest.bin';
+const ASSET_MANIFEST_MAGIC = 0x43445641; // "CDVA"
+const ASSET_MANIFEST_VERSION = 1;
+const ASSET_MANIFEST_HASH_LENGTH = 16;
+
+// MIME types for common web assets. Anything else is left to MimeTypeMap at runtime.
+const ASSET_MIME_TYPES = {
+    '.html': 'text/html',
+    '.htm': 'text/html',
+    '.js': 'text/javascript',
+    '.mjs': 'text/javascript',
+    '.css': 'text/css',
+    '.json': 'application/json',
+    '.map': 'application/json',
+    '.wasm': 'application/wasm',
+    '.svg': 'image/svg+xml',
+    '.png': 'image/png',
+    '.jpg': 'image/jpeg',
+    '.jpeg': 'image/jpeg',
+    '.gif': 'image/gif',
+    '.webp': 'image/webp',
+    '.ico': 'image/x-icon',
+    '.woff': 'font/woff',
+    '.woff2': 'font/woff2',
+    '.ttf': 'font/ttf',
+    '.otf': 'font/otf',
+    '.txt': 'text/plain',
+    '.xml': 'text/xml',
+    '.mp3': 'audio/mpeg',
+    '.mp4': 'video/mp4',
+    '.webm': 'video/webm'
+};
+
+/**
+ * Writes a binary manifest of the platform 'www' directory next to it, when the
+ *   AssetManifest preference is enabled. It lists each file's path, size, MIME
+ *   type and content hash, so the app can answer existence, length and type
+ *   queries without opening assets. Otherwise removes any manifest left by an
+ *   earlier prepare.
+ *
+ * Layout (big-endian): magic, version, MIME type count, then each MIME type as a
+ *   length-prefixed UTF-8 string, then entry count, then for each entry its
+ *   length-prefixed UTF-8 path relative to www/, 64-bit size, 16-bit MIME type
+ *   index (-1 for none) and the first 16 bytes of its SHA-256 hash.
+ *
+ * @param   {ConfigParser}  platformConfig  A project's configuration
+ * @param   {Object}  locations       A map of locations for this platform
+ */
+function updateAssetManifest (platformConfig, locations) {
+    const manifestPath = path.join(path.dirname(locations.www), ASSET_MANIFEST_FILE);
+    if (platformConfig.getPreference('AssetManifest', 'android') !== 'true') {
+        if (fs.existsSync(manifestPath)) {
+            fs.rmSync(manifestPath);
+        }
+        return;
+    }
+
+    const files = glob.sync('**/*', { cwd: locations.www, onlyFiles: true }).sort();
+    const mimeTypes = [];
+    const chunks = [];
+
+    const writeInt = (value, bytes) => {
+        const buffer = Buffer.alloc(bytes);
+        if (bytes === 8) {
+            buffer.writeBigInt64BE(BigInt(value));
+        } else if (bytes === 4) {
+            buffer.writeInt32BE(value);
+        } else {
+            buffer.writeInt16BE(value);
+        }
+        chunks.push(buffer);
+    };
+    const writeString = value => {
+        const buffer = Buffer.from(value, 'utf8');
+        writeInt(buffer.length, 2);
+        chunks.push(buffer);
+    };
+
+    const entries = files.map(file => {
+        const data = fs.readFileSync(path.join(locations.www, file));
+        const mimeType = ASSET_MIME_TYPES[path.extname(file).toLowerCase()];
+        let mimeIndex = -1;
+        if (mimeType) {
+            mimeIndex = mimeTypes.indexOf(mimeType);
+            if (mimeIndex === -1) {
+                mimeIndex = mimeTypes.push(mimeType) - 1;
+            }
+        }
+        return {
+            path: file.split(path.sep).join('/'),
+            size: data.length,
+            mimeIndex,
+            hash: crypto.createHash('sha256').update(data).digest().subarray(0, ASSET_MANIFEST_HASH_LENGTH)
+        };
+    });
+
+    writeInt(ASSET_MANIFEST_MAGIC, 4);
+    writeInt(ASSET_MANIFEST_VERSION, 4);
+    writeInt(mimeTypes.length, 4);
+    mimeTypes.forEach(writeString);
+    writeInt(entries.length, 4);
+    for (const entry of entries) {
+        writeString(entry.path);
+        writeInt(entry.size, 8);
+        writeInt(entry.mimeIndex, 2);
+        chunks.push(entry.hash);
+    }
+
+    events.emit('verbose', 'Writing asset manifest for ' + entries.length + ' www assets to ' + manifestPath);
+    fs.writeFileSync(manifestPath, Buffer.concat(chunks));
+}
+
 /**
  * Cleans all files from the platform 'www' directory.
  */
 function cleanWww (projectRoot, locations) {
     const targetDir = path.relative(projectRoot, locations.www);
     events.emit('verbose', 'Cleaning ' + targetDir);
+    fs.rmSync(path.join(path.dirname(locations.www), ASSET_MANIFEST_FILE), { force: true });
 
     // No source paths are specified, so mergeAndUpdateDir() will clear the target directory.
     FileUpdater.mergeAndUpdateDir(
@@ -0,0 +1,142 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+const fs = require('node:fs');
+const path = require('node:path');
+const vm = require('node:vm');
+
+const EXEC_JS = fs.readFileSync(path.join(__dirname, '../../cordova-js-src/exec.js'), 'utf8');
+
+/**
+ * Loads a fresh copy of cordova-js-src/exec.js with the cordova modules it requires
+ * replaced by stubs, and a native side that answers gap_init with initReply.
+ */
+function loadExec (nativeApi, initReply) {
+    const cordova = {
+        callbackId: 1,
+        callbacks: {},
+        callbackFromNative: jasmine.createSpy('callbackFromNative'),
+        addWindowEventHandler: () => {},
+        addDocumentEventHandler: () => {}
+    };
+    const modules = {
+        cordova,
+        'cordova/android/nativeapiprovider': {
+            get: () => nativeApi,
+            setPreferPrompt: () => {},
+            setPreferWebMessage: () => {}
+        },
+        'cordova/utils': { typeName: value => Object.prototype.toString.call(value).slice(8, -1) },
+        'cordova/base64': {},
+        'cordova/channel': { onNativeReady: { fire: () => {} } }
+    };
+    const context = {
+        module: { exports: {} },
+        require: name => modules[name],
+        window: { addEventListener: () => {} },
+        document: { addEventListener: () => {} },
+        prompt: () => initReply,
+        setTimeout,
+        console
+    };
+    vm.runInNewContext(EXEC_JS, context);
+    const exec = context.module.exports;
+    exec.setJsToNativeBridgeMode(exec.jsToNativeModes.PROMPT);
+    exec.init();
+    return { exec, cordova };
+}
+
+function nextTicks () {
+    return new Promise(resolve => setTimeout(resolve, 10));
+}
+
+// Encodes messages the way NativeToJsMessageQueue.popAndEncode() does.
+function encode (...messages) {
+    return messages.map(message => message.length + ' ' + message).join('');
+}
+
+describe('exec', () => {
+    let nativeApi;
+
+    beforeEach(() => {
+        nativeApi = {
+            exec: jasmine.createSpy('exec'),
+            execBatch: jasmine.createSpy('execBatch'),
+            setNativeToJsBridgeMode: () => {}
+        };
+    });
+
+    it('should call exec() for every call when batching is off', () => {
+        const { exec } = loadExec(nativeApi, '5');
+
+        exec(null, null, 'Svc', 'a', [1]);
+        exec(null, null, 'Svc', 'b', [2]);
+
+        expect(nativeApi.exec.calls.allArgs()).toEqual([
+            [5, 'Svc', 'a', 'Svc1', '[1]', [1]],
+            [5, 'Svc', 'b', 'Svc2', '[2]', [2]]
+        ]);
+        expect(nativeApi.execBatch).not.toHaveBeenCalled();
+    });
+
+    it('should send the calls of one tick together, in order, when batching is on', async () => {
+        const { exec } = loadExec(nativeApi, '5 -1 1');
+
+        exec(null, null, 'Svc', 'a', [1]);
+        exec(null, null, 'Other', 'b', []);
+        exec(null, null, 'Svc', 'c', ['x']);
+        expect(nativeApi.execBatch).not.toHaveBeenCalled();
+
+        await nextTicks();
+        expect(nativeApi.exec).not.toHaveBeenCalled();
+        expect(nativeApi.execBatch).toHaveBeenCalledTimes(1);
+        expect(nativeApi.execBatch).toHaveBeenCalledWith(5, JSON.stringify([
+            ['Svc', 'a', 'Svc1', '[1]'],
+            ['Other', 'b', 'Other2', '[]'],
+            ['Svc', 'c', 'Svc3', '["x"]']
+        ]));
+    });
+
+    it('should use exec() for a lone call when batching is on', async () => {
+        const { exec } = loadExec(nativeApi, '5 -1 1');
+
+        exec(null, null, 'Svc', 'a', []);
+        await nextTicks();
+
+        expect(nativeApi.exec).toHaveBeenCalledWith(5, 'Svc', 'a', 'Svc1', '[]');
+        expect(nativeApi.execBatch).not.toHaveBeenCalled();
+    });
+
+    it('should deliver a failed call\'s error without affecting the others', async () => {
+        // The second call failed on the native side and was answered with an error.
+        nativeApi.execBatch.and.returnValue(encode('S01 Svc1 sok', 'F08 Svc2 N', 'S01 Svc3 sok'));
+        const { exec, cordova } = loadExec(nativeApi, '5 -1 1');
+
+        exec(null, null, 'Svc', 'a', []);
+        exec(null, null, 'Svc', 'b', []);
+        exec(null, null, 'Svc', 'c', []);
+        await nextTicks();
+
+        expect(cordova.callbackFromNative.calls.allArgs()).toEqual([
+            ['Svc1', true, 1, ['ok'], false],
+            ['Svc2', false, 8, [null], false],
+            ['Svc3', true, 1, ['ok'], false]
+        ]);
+    });
+});
@@ -19,6 +19,9 @@
 
 const rewire = require('rewire');
 const path = require('node:path');
+const fs = require('node:fs');
+const zlib = require('node:zlib');
+const tmp = require('tmp');
 const CordovaError = require('cordova-common').CordovaError;
 const GradlePropertiesParser = require('../../lib/config/GradlePropertiesParser');
 const utils = require('../../lib/utils');
@@ -1038,4 +1041,72 @@ describe('prepare', () => {
             });
         });
     });
+
+    describe('precompressWww method', () => {
+        let precompressWww;
+        let wwwDir;
+
+        beforeEach(() => {
+            precompressWww = prepare.__get__('precompressWww');
+            wwwDir = tmp.dirSync({ unsafeCleanup: true }).name;
+            fs.writeFileSync(path.join(wwwDir, 'app.js'), 'console.log("hello");\n'.repeat(100));
+            fs.writeFileSync(path.join(wwwDir, 'tiny.css'), 'a{}');
+            fs.writeFileSync(path.join(wwwDir, 'logo.png'), 'not really a png'.repeat(100));
+        });
+
+        function configWith (value) {
+            return { getPreference: jasmine.createSpy('getPreference').and.returnValue(value) };
+        }
+
+        it('does nothing when the PrecompressAssets preference is not set', () => {
+            precompressWww(configWith(''), { www: wwwDir });
+            expect(fs.readdirSync(wwwDir).sort()).toEqual(['app.js', 'logo.png', 'tiny.css']);
+        });
+
+        it('writes smaller gzip and brotli variants of text assets', () => {
+            precompressWww(configWith('br, gzip'), { www: wwwDir });
+
+            expect(fs.readdirSync(wwwDir).sort()).toEqual(['app.js', 'app.js.br', 'app.js.gz', 'logo.png', 'tiny.css']);
+            const original = fs.readFileSync(path.join(wwwDir, 'app.js'));
+            expect(zlib.brotliDecompressSync(fs.readFileSync(path.join(wwwDir, 'app.js.br')))).toEqual(original);
+            expect(zlib.gunzipSync(fs.readFileSync(path.join(wwwDir, 'app.js.gz')))).toEqual(original);
+        });
+    });
+
+    describe('updateAssetManifest method', () => {
+        let updateAssetManifest;
+        let assetsDir;
+
+        beforeEach(() => {
+            updateAssetManifest = prepare.__get__('updateAssetManifest');
+            assetsDir = tmp.dirSync({ unsafeCleanup: true }).name;
+            fs.mkdirSync(path.join(assetsDir, 'www', 'css'), { recursive: true });
+            fs.writeFileSync(path.join(assetsDir, 'www', 'index.html'), 'hello');
+            fs.writeFileSync(path.join(assetsDir, 'www', 'css', 'a.css'), 'a{}');
+            fs.writeFileSync(path.join(assetsDir, 'www', 'blob.xyz'), 'x');
+        });
+
+        function configWith (value) {
+            return { getPreference: jasmine.createSpy('getPreference').and.returnValue(value) };
+        }
+
+        it('writes the manifest that AssetManifestTest.java reads', () => {
+            updateAssetManifest(configWith('true'), { www: path.join(assetsDir, 'www') });
+
+            const manifest = fs.readFileSync(path.join(assetsDir, 'cordova-asset-manifest.bin'));
+            expect(manifest.toString('hex')).toBe(
+                '4344564100000001000000020008746578742f6373730009746578742f68746d6c' +
+                '000000030008626c6f622e78797a0000000000000001ffff2d711642b726b04401627ca9fbac32f5' +
+                '00096373732f612e637373000000000000000300005f546eb4606b5c2b7d2a449a5cc2bbb4' +
+                '000a696e6465782e68746d6c000000000000000500012cf24dba5fb0a30e26e83b2ac5b9e29e');
+        });
+
+        it('removes the manifest when the AssetManifest preference is disabled', () => {
+            const manifestPath = path.join(assetsDir, 'cordova-asset-manifest.bin');
+            fs.writeFileSync(manifestPath, 'stale');
+
+            updateAssetManifest(configWith(''), { www: path.join(assetsDir, 'www') });
+            expect(fs.existsSync(manifestPath)).toBe(false);
+        });
+    });
 });
@@ -0,0 +1,196 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.engine;
+
+import android.util.Base64;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaArgs;
+import org.apache.cordova.CordovaBridge;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.NativeToJsMessageQueue;
+import org.apache.cordova.PluginEntry;
+import org.apache.cordova.PluginManager;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds messages to SystemWebMessageExecApi as the web message listener would receive them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SystemWebMessageExecApiTest {
+    // Allowed by the default policy, which trusts the launch URL prefix.
+    private static final String APP_ORIGIN = "https://localhost";
+
+    private NativeToJsMessageQueue queue;
+    private SystemWebMessageExecApi execApi;
+    private RecordingPlugin recorder;
+    private LegacyPlugin legacy;
+
+    public static class RecordingPlugin extends CordovaPlugin {
+        CordovaArgs args;
+
+        @Override
+        public boolean execute(String action, CordovaArgs args, CallbackContext callbackContext) {
+            this.args = args;
+            return true;
+        }
+    }
+
+    public static class LegacyPlugin extends CordovaPlugin {
+        JSONArray args;
+
+        @Override
+        public boolean execute(String action, JSONArray args, CallbackContext callbackContext) {
+            this.args = args;
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        final CordovaPreferences preferences = new CordovaPreferences();
+        CordovaWebView webView = newProxy(CordovaWebView.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getPreferences".equals(method.getName()) ? preferences : defaultValue(method);
+            }
+        });
+        CordovaInterface cordova = newProxy(CordovaInterface.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return defaultValue(method);
+            }
+        });
+        recorder = new RecordingPlugin();
+        legacy = new LegacyPlugin();
+        PluginManager pluginManager = new PluginManager(webView, cordova, Arrays.asList(
+                new PluginEntry("Recorder", recorder),
+                new PluginEntry("Legacy", legacy)));
+        pluginManager.init();
+
+        queue = new NativeToJsMessageQueue();
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        execApi = new SystemWebMessageExecApi(new CordovaBridge(pluginManager, queue), null);
+    }
+
+    @After
+    public void tearDown() {
+        execApi.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class || type == long.class) {
+            return 0;
+        }
+        return null;
+    }
+
+    @Test
+    public void testRestrictedOriginIsRejected() throws Exception {
+        execApi.handleMessage("https://evil.example", "gap_init:0", null);
+        assertFalse(queue.isBridgeEnabled());
+
+        execApi.handleMessage(APP_ORIGIN, "gap_init:0", null);
+        assertTrue(queue.isBridgeEnabled());
+        try {
+            execApi.handleMessage("https://evil.example", "gap:[\"Recorder\",\"echo\",\"Recorder1\",\"[]\",[]]", null);
+            fail("Expected a call from another origin to be rejected");
+        } catch (IllegalAccessException e) {
+            // Expected.
+        }
+        assertNull(recorder.args);
+        // Unlike a wrong bridge secret, this doesn't turn the bridge off for the app.
+        assertTrue(queue.isBridgeEnabled());
+    }
+
+    @Test
+    public void testArrayBuffersReachPluginAsIs() throws Exception {
+        execApi.handleMessage(APP_ORIGIN, "gap_init:0", null);
+        byte[] data = new byte[] { 1, 2, 3 };
+        execApi.handleMessage(APP_ORIGIN, "gap:[\"Recorder\",\"echo\",\"Recorder1\",\"[\\\"a\\\",{}]\",[1]]",
+                Collections.singletonList(data));
+
+        assertEquals("a", recorder.args.getString(0));
+        assertSame(data, recorder.args.getArrayBuffer(1));
+        // Everything else still sees the Base64 string the other bridges send.
+        assertEquals("AQID", recorder.args.getString(1));
+    }
+
+    @Test
+    public void testLegacyPluginGetsBase64() throws Exception {
+        execApi.handleMessage(APP_ORIGIN, "gap_init:0", null);
+        byte[] data = new byte[] { 1, 2, 3 };
+        execApi.handleMessage(APP_ORIGIN, "gap:[\"Legacy\",\"echo\",\"Legacy1\",\"[{}]\",[0]]",
+                Collections.singletonList(data));
+
+        assertArrayEquals(data, Base64.decode(legacy.args.getString(0), Base64.DEFAULT));
+    }
+
+    @Test
+    public void testMissingArrayBuffersAreRejected() throws Exception {
+        execApi.handleMessage(APP_ORIGIN, "gap_init:0", null);
+        try {
+            execApi.handleMessage(APP_ORIGIN, "gap:[\"Recorder\",\"echo\",\"Recorder1\",\"[{}]\",[0]]", null);
+            fail("Expected a call without its ArrayBuffers to be rejected");
+        } catch (JSONException e) {
+            // Expected.
+        }
+        assertNull(recorder.args);
+    }
+
+    @Test
+    public void testArrayBufferIndexPastArgumentsIsRejected() throws Exception {
+        execApi.handleMessage(APP_ORIGIN, "gap_init:0", null);
+        try {
+            execApi.handleMessage(APP_ORIGIN, "gap:[\"Recorder\",\"echo\",\"Recorder1\",\"[{}]\",[200000000]]",
+                    Collections.singletonList(new byte[] { 1 }));
+            fail("Expected an ArrayBuffer index past the arguments to be rejected");
+        } catch (JSONException e) {
+            // Expected.
+        }
+        assertNull(recorder.args);
+    }
+}
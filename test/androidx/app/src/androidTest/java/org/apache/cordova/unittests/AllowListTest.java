@@ -0,0 +1,194 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import android.net.Uri;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.AllowList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Both AllowList and the regex matcher it's compared against parse URLs with android.net.Uri,
+ * so this runs on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AllowListTest {
+
+    /**
+     * How AllowList matched before it was compiled into an index: a regex for each part
+     * of each pattern.
+     */
+    private static class RegexAllowList {
+        private final List<Pattern[]> patterns = new ArrayList<Pattern[]>();
+        private final List<Integer> ports = new ArrayList<Integer>();
+        private boolean wideOpen;
+
+        private static String regexFromPattern(String pattern, boolean allowWildcards) {
+            final String toReplace = "\\.[]{}()^$?+|";
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' && allowWildcards) {
+                    regex.append(".");
+                } else if (toReplace.indexOf(c) > -1) {
+                    regex.append('\\');
+                }
+                regex.append(c);
+            }
+            return regex.toString();
+        }
+
+        private void add(String scheme, String host, String port, String path) {
+            Pattern schemePattern = scheme == null || "*".equals(scheme) ? null
+                    : Pattern.compile(regexFromPattern(scheme, false), Pattern.CASE_INSENSITIVE);
+            Pattern hostPattern;
+            if ("*".equals(host)) {
+                hostPattern = null;
+            } else if (host.startsWith("*.")) {
+                hostPattern = Pattern.compile("([a-z0-9.-]*\\.)?" + regexFromPattern(host.substring(2), false), Pattern.CASE_INSENSITIVE);
+            } else {
+                hostPattern = Pattern.compile(regexFromPattern(host, false), Pattern.CASE_INSENSITIVE);
+            }
+            Integer portNumber = port == null || "*".equals(port) ? null : Integer.parseInt(port, 10);
+            Pattern pathPattern = path == null || "/*".equals(path) ? null : Pattern.compile(regexFromPattern(path, true));
+            patterns.add(new Pattern[] { schemePattern, hostPattern, pathPattern });
+            ports.add(portNumber);
+        }
+
+        void addAllowListEntry(String origin) {
+            if (wideOpen) {
+                return;
+            }
+            if ("*".equals(origin)) {
+                wideOpen = true;
+                return;
+            }
+            try {
+                Matcher m = Pattern.compile("^((\\*|[A-Za-z-]+):(//)?)?(\\*|((\\*\\.)?[^*/:]+))?(:(\\d+))?(/.*)?").matcher(origin);
+                if (m.matches()) {
+                    String scheme = m.group(2);
+                    String host = m.group(4);
+                    if (("file".equals(scheme) || "content".equals(scheme)) && host == null) host = "*";
+                    if (scheme == null) {
+                        add("http", host, m.group(8), m.group(9));
+                        add("https", host, m.group(8), m.group(9));
+                    } else {
+                        add(scheme, host, m.group(8), m.group(9));
+                    }
+                }
+            } catch (Exception e) {
+                // Dropped, like AllowList does.
+            }
+        }
+
+        boolean isUrlAllowListed(String url) {
+            if (wideOpen) {
+                return true;
+            }
+            Uri uri = Uri.parse(url);
+            for (int i = 0; i < patterns.size(); i++) {
+                Pattern[] p = patterns.get(i);
+                try {
+                    if ((p[0] == null || p[0].matcher(uri.getScheme()).matches())
+                            && (p[1] == null || p[1].matcher(uri.getHost()).matches())
+                            && (ports.get(i) == null || ports.get(i).equals(uri.getPort()))
+                            && (p[2] == null || p[2].matcher(uri.getPath()).matches())) {
+                        return true;
+                    }
+                } catch (Exception e) {
+                    // No match.
+                }
+            }
+            return false;
+        }
+    }
+
+    @Test
+    public void testExamples() {
+        AllowList allowList = new AllowList();
+        allowList.addAllowListEntry("https://*.example.com/*", false);
+        allowList.addAllowListEntry("http://api.test.org:8080/v1/*/items", false);
+        allowList.addAllowListEntry("cdn.test.net", false);
+        allowList.addAllowListEntry("file:///*", false);
+
+        assertTrue(allowList.isUrlAllowListed("https://example.com/"));
+        assertTrue(allowList.isUrlAllowListed("https://a.b.EXAMPLE.com/x"));
+        assertFalse(allowList.isUrlAllowListed("https://badexample.com/"));
+        assertFalse(allowList.isUrlAllowListed("https://a_b.example.com/"));
+        assertFalse(allowList.isUrlAllowListed("http://example.com/"));
+        assertTrue(allowList.isUrlAllowListed("HTTP://api.test.org:8080/v1/x/y/items"));
+        assertFalse(allowList.isUrlAllowListed("http://api.test.org/v1/x/items"));
+        assertFalse(allowList.isUrlAllowListed("http://api.test.org:8080/v1/x%0A/items"));
+        assertTrue(allowList.isUrlAllowListed("https://cdn.test.net/anything"));
+        assertTrue(allowList.isUrlAllowListed("file:///android_asset/www/index.html"));
+        assertFalse(allowList.isUrlAllowListed("content://media/1"));
+
+        allowList.addAllowListEntry("*", false);
+        assertTrue(allowList.isUrlAllowListed("content://media/1"));
+    }
+
+    private static String pick(Random random, String[] choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+
+    @Test
+    public void testMatchesRegexSemantics() {
+        String[] schemes = { "", "*://", "http://", "https://", "HTTPS://", "file://", "content://", "my-app:" };
+        String[] hosts = { "", "*", "example.com", "*.example.com", "*.Example.COM", "a.b", "*.b", "*..b", "x-y.b",
+                "exKample.com", "*.com", "a.", "*.b." };
+        String[] ports = { "", ":8080", ":80", ":*" };
+        String[] paths = { "", "/*", "/", "/a", "/a*", "/*b", "/a*b*c", "/a/**/c", "/a.b*", "/A", "/é*", "/a\n*",
+                "/(x)*[y]", "/😀*" };
+        String[] urlSchemes = { "http://", "https://", "HTTP://", "hTTps://", "file://", "content://", "my-app:", "ftp://", "" };
+        String[] urlHosts = { "", "example.com", "EXAMPLE.com", "a.example.com", "a_b.example.com", "a..example.com",
+                ".example.com", "badexample.com", "a.b", "c.a.b", ".b", "..b", "x-y.b", "exKample.com",
+                "exkample.com", "a.", "b.", "q.b.", "%C3%A9.b" };
+        String[] urlPorts = { "", ":8080", ":80", ":99999", ":x" };
+        String[] urlPaths = { "", "/", "/a", "/A", "/ab", "/abc", "/aXbYc", "/ab\nc", "/a%0Ab", "/a/x/y/c", "/a/c",
+                "/a.b", "/axb", "/b", "/été", "/(x)[y]", "/(x)z[y]", "/😀x", "/a?b", "/a#b" };
+
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            AllowList allowList = new AllowList();
+            RegexAllowList expected = new RegexAllowList();
+            int entries = 1 + random.nextInt(12);
+            for (int i = 0; i < entries; i++) {
+                String origin = pick(random, schemes) + pick(random, hosts) + pick(random, ports) + pick(random, paths);
+                allowList.addAllowListEntry(origin, false);
+                expected.addAllowListEntry(origin);
+            }
+            for (int i = 0; i < 200; i++) {
+                String url = pick(random, urlSchemes) + pick(random, urlHosts) + pick(random, urlPorts) + pick(random, urlPaths);
+                assertEquals(url, expected.isUrlAllowListed(url), allowList.isUrlAllowListed(url));
+            }
+        }
+    }
+}
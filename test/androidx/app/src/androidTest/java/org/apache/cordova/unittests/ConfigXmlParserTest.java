@@ -0,0 +1,95 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.AllowListPlugin;
+import org.apache.cordova.ConfigXmlData;
+import org.apache.cordova.ConfigXmlParser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Uses the platform's XmlPullParser and android.net.Uri, so this runs on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConfigXmlParserTest {
+    private static final String CONFIG_XML =
+            "<widget xmlns=\"http://www.w3.org/ns/widgets\" id=\"org.example\" version=\"1.0.0\">"
+            + "<preference name=\"Hostname\" value=\"app\" />"
+            + "<feature name=\"Echo\"><param name=\"android-package\" value=\"org.example.Echo\" />"
+            + "<param name=\"onload\" value=\"true\" /></feature>"
+            + "<content src=\"main.html\" />"
+            + "<access origin=\"https://api.example.com\" subdomains=\"true\" />"
+            + "<allow-navigation href=\"*\" />"
+            + "<allow-intent href=\"tel:*\" />"
+            + "</widget>";
+
+    private static XmlPullParser newParser() throws Exception {
+        XmlPullParser xml = XmlPullParserFactory.newInstance().newPullParser();
+        xml.setInput(new StringReader(CONFIG_XML));
+        return xml;
+    }
+
+    @Test
+    public void testConfigXmlDataHoldsEverythingInOnePass() throws Exception {
+        ConfigXmlParser parser = new ConfigXmlParser();
+        parser.parse(newParser());
+        ConfigXmlData data = parser.getConfigXmlData();
+
+        assertEquals("app", data.getPreferences().get("hostname"));
+        assertEquals(1, data.getPluginEntries().size());
+        assertEquals("org.example.Echo", data.getPluginEntries().get(0).pluginClass);
+        assertTrue(data.getPluginEntries().get(0).onload);
+        assertEquals("main.html", data.getContentSrc());
+        assertEquals("https://app/main.html", parser.getLaunchUrl());
+
+        // The content src, then "*" expanded the way AllowListPlugin always has.
+        assertEquals(4, data.getAllowedNavigations().size());
+        assertEquals("main.html", data.getAllowedNavigations().get(0).origin);
+        assertEquals("data:*", data.getAllowedNavigations().get(3).origin);
+        assertEquals("tel:*", data.getAllowedIntents().get(0).origin);
+        assertTrue(data.getAllowedRequests().get(0).subdomains);
+
+        assertSame(data, parser.getConfigXmlData());
+        try {
+            data.getPluginEntries().clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Shared between parsers.
+        }
+    }
+
+    @Test
+    public void testAllowListPluginUsesParsedEntries() throws Exception {
+        AllowListPlugin plugin = new AllowListPlugin(newParser());
+        assertEquals(Boolean.TRUE, plugin.shouldAllowNavigation("https://anywhere.example.org/"));
+        assertEquals(Boolean.TRUE, plugin.shouldAllowRequest("https://cdn.api.example.com/lib.js"));
+        assertEquals(Boolean.TRUE, plugin.shouldOpenExternalUrl("tel:123"));
+        assertNull(plugin.shouldOpenExternalUrl("sms:123"));
+    }
+}
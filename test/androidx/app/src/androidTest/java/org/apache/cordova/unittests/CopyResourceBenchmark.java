@@ -0,0 +1,123 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.CordovaResourceApi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Measures CordovaResourceApi.copyResource() throughput on a device. Results are
+ * logged with the tag "CopyResourceBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class CopyResourceBenchmark {
+    private static final String TAG = "CopyResourceBenchmark";
+    private static final int FILE_SIZE = 32 * 1024 * 1024;
+    private static final int RUNS = 5;
+
+    private CordovaResourceApi resourceApi;
+    private File source;
+    private File destination;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        resourceApi = new CordovaResourceApi(context, null);
+        source = new File(context.getCacheDir(), "benchmark-source");
+        destination = new File(context.getCacheDir(), "benchmark-destination");
+        byte[] chunk = new byte[1024 * 1024];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = (byte) i;
+        }
+        FileOutputStream out = new FileOutputStream(source);
+        for (int i = 0; i < FILE_SIZE / chunk.length; i++) {
+            out.write(chunk);
+        }
+        out.close();
+    }
+
+    @After
+    public void tearDown() {
+        source.delete();
+        destination.delete();
+    }
+
+    @Test
+    public void benchmarkFileToFile() throws IOException {
+        // Uses the file descriptors.
+        report("file to file", new Copy() {
+            @Override
+            public void run() throws IOException {
+                resourceApi.copyResource(Uri.fromFile(source), Uri.fromFile(destination));
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkStreamToFile() throws IOException {
+        // Uses the buffer, as for compressed assets and http.
+        report("stream to file", new Copy() {
+            @Override
+            public void run() throws IOException {
+                resourceApi.copyResource(new CordovaResourceApi.OpenForReadResult(Uri.fromFile(source),
+                        new BufferedInputStream(new FileInputStream(source)), null, FILE_SIZE, null),
+                        new FileOutputStream(destination));
+            }
+        });
+    }
+
+    private interface Copy {
+        void run() throws IOException;
+    }
+
+    private void report(String name, Copy copy) throws IOException {
+        // Warm up.
+        copy.run();
+        long totalMillis = 0;
+        for (int i = 0; i < RUNS; i++) {
+            destination.delete();
+            long start = SystemClock.elapsedRealtime();
+            copy.run();
+            totalMillis += SystemClock.elapsedRealtime() - start;
+            assertEquals(FILE_SIZE, destination.length());
+        }
+        long averageMillis = Math.max(1, totalMillis / RUNS);
+        Log.i(TAG, name + ": " + averageMillis + " ms, " + (FILE_SIZE / 1024 / 1024 * 1000 / averageMillis) + " MB/s");
+    }
+}
@@ -0,0 +1,119 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.CordovaResourceApi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class CopyResourceTest {
+    private CordovaResourceApi resourceApi;
+    private File dir;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        resourceApi = new CordovaResourceApi(context, null);
+        dir = new File(context.getCacheDir(), "CopyResourceTest");
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(dir, name);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileInputStream in = new FileInputStream(file);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int count) {
+        byte[] data = new byte[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Test
+    public void testCopiesFileWithUnknownLength() throws IOException {
+        File source = write("source", bytes(300000));
+        File destination = new File(dir, "destination");
+
+        resourceApi.copyResource(new CordovaResourceApi.OpenForReadResult(null, new FileInputStream(source), null, -1, null),
+                new FileOutputStream(destination));
+        assertArrayEquals(bytes(300000), readAll(destination));
+    }
+
+    @Test
+    public void testAppendsToOutput() throws IOException {
+        File source = write("source", new byte[] { 3, 4 });
+        File destination = write("destination", new byte[] { 1, 2 });
+
+        resourceApi.copyResource(new CordovaResourceApi.OpenForReadResult(null, new FileInputStream(source), null, 2, null),
+                new FileOutputStream(destination, true));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, readAll(destination));
+    }
+
+    @Test
+    public void testCopiesStreams() throws IOException {
+        File destination = new File(dir, "destination");
+
+        resourceApi.copyResource(new CordovaResourceApi.OpenForReadResult(null, new ByteArrayInputStream(bytes(200000)), null, -1, null),
+                new FileOutputStream(destination));
+        assertArrayEquals(bytes(200000), readAll(destination));
+    }
+}
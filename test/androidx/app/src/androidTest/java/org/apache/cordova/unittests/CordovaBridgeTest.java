@@ -0,0 +1,132 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaArgs;
+import org.apache.cordova.CordovaBridge;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.NativeToJsMessageQueue;
+import org.apache.cordova.PluginEntry;
+import org.apache.cordova.PluginManager;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives CordovaBridge the way the prompt() and JS object bridges do.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CordovaBridgeTest {
+    // Allowed by the default policy, which trusts the launch URL prefix.
+    private static final String APP_URL = "https://localhost/";
+
+    private NativeToJsMessageQueue queue;
+    private CordovaBridge bridge;
+
+    public static class EchoPlugin extends CordovaPlugin {
+        @Override
+        public boolean execute(String action, CordovaArgs args, CallbackContext callbackContext) throws JSONException {
+            callbackContext.success(args.getString(0));
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        queue = new NativeToJsMessageQueue();
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        final CordovaPreferences preferences = new CordovaPreferences();
+        CordovaWebView webView = newProxy(CordovaWebView.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("sendPluginResult".equals(method.getName())) {
+                    queue.addPluginResult((PluginResult) args[0], (String) args[1]);
+                    return null;
+                }
+                return "getPreferences".equals(method.getName()) ? preferences : defaultValue(method);
+            }
+        });
+        CordovaInterface cordova = newProxy(CordovaInterface.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return defaultValue(method);
+            }
+        });
+        PluginManager pluginManager = new PluginManager(webView, cordova, Arrays.asList(
+                new PluginEntry("Echo", new EchoPlugin())));
+        pluginManager.init();
+        bridge = new CordovaBridge(pluginManager, queue);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class || type == long.class) {
+            return 0;
+        }
+        return null;
+    }
+
+    @Test
+    public void testInitReplyCarriesExecBatching() {
+        assertTrue(bridge.promptOnJsPrompt(APP_URL, "", "gap_init:0").matches("\\d+"));
+
+        bridge.setExecBatchingEnabled(true);
+        assertTrue(bridge.promptOnJsPrompt(APP_URL, "", "gap_init:0").matches("\\d+ -1 1"));
+
+        bridge.setPreferredNativeToJsBridgeMode(4);
+        assertTrue(bridge.promptOnJsPrompt(APP_URL, "", "gap_init:0").matches("\\d+ 4 1"));
+    }
+
+    @Test
+    public void testExecBatchAnswersFailedCalls() throws Exception {
+        int secret = Integer.parseInt(bridge.promptOnJsPrompt(APP_URL, "", "gap_init:0"));
+        // The second call is missing its arguments.
+        String messages = bridge.jsExecBatch(secret, "[[\"Echo\",\"echo\",\"Echo1\",\"[\\\"a\\\"]\"],"
+                + "[\"Echo\",\"echo\",\"Echo2\"],"
+                + "[\"Echo\",\"echo\",\"Echo3\",\"[\\\"c\\\"]\"]]");
+
+        int first = messages.indexOf("S01 Echo1 sa");
+        int failed = messages.indexOf("F08 Echo2 ");
+        int last = messages.indexOf("S01 Echo3 sc");
+        assertTrue(messages, first >= 0 && first < failed && failed < last);
+    }
+}
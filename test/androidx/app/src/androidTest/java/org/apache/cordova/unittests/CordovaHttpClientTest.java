@@ -0,0 +1,169 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import android.net.Uri;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.CordovaHttpClient;
+import org.apache.cordova.CordovaResourceApi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs CordovaResourceApi's http support against a local server.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CordovaHttpClientTest {
+    private ServerSocket server;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    private CordovaResourceApi resourceApi;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Socket socket = server.accept();
+                        try {
+                            respond(socket);
+                        } finally {
+                            socket.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    // Closed by tearDown().
+                }
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        resourceApi = new CordovaResourceApi(InstrumentationRegistry.getInstrumentation().getTargetContext(), null);
+    }
+
+    /**
+     * Answers one request with "hello", or a 404 without a Content-Type for paths
+     * under /missing, closing the connection afterwards.
+     */
+    private void respond(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        String[] requestLine = in.readLine().split(" ");
+        boolean testHeader = false;
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            testHeader |= line.regionMatches(true, 0, "X-Test:", 0, 7);
+        }
+        requests.add(requestLine[0] + " " + requestLine[1] + (testHeader ? " X-Test" : ""));
+
+        byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+        String headers;
+        if (requestLine[1].startsWith("/missing")) {
+            headers = "HTTP/1.1 404 Not Found\r\n";
+        } else {
+            headers = "HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: text/plain; charset=utf-8\r\n";
+        }
+        headers += "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        OutputStream out = socket.getOutputStream();
+        out.write(headers.getBytes(StandardCharsets.UTF_8));
+        if (!"HEAD".equals(requestLine[0])) {
+            out.write(body);
+        }
+        out.flush();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private Uri uri(String path) {
+        return Uri.parse("http://127.0.0.1:" + server.getLocalPort() + path);
+    }
+
+    @Test
+    public void testMimeTypesAreCachedPerUrl() {
+        assertEquals("text/plain", resourceApi.getMimeType(uri("/a.txt")));
+        assertEquals("text/plain", resourceApi.getMimeType(uri("/a.txt")));
+        assertEquals("text/plain", resourceApi.getMimeType(uri("/b.txt")));
+        assertEquals(2, requests.size());
+        assertEquals("HEAD /a.txt", requests.get(0));
+    }
+
+    @Test
+    public void testMissingMimeTypeIsNotCached() {
+        assertNull(resourceApi.getMimeType(uri("/missing.txt")));
+        assertNull(resourceApi.getMimeType(uri("/missing.txt")));
+        // Asked again, since a later response may have a type.
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void testReadsRememberMimeType() throws IOException {
+        CordovaResourceApi.OpenForReadResult result = resourceApi.openForRead(uri("/page"));
+        assertEquals("text/plain", result.mimeType);
+        assertEquals(5, result.length);
+        result.inputStream.close();
+
+        assertEquals("text/plain", resourceApi.getMimeType(uri("/page")));
+        assertEquals(1, requests.size());
+        assertEquals("GET /page", requests.get(0));
+    }
+
+    @Test
+    public void testHttpClientIsReplaceable() throws IOException {
+        resourceApi.setHttpClient(new CordovaHttpClient() {
+            @Override
+            public HttpURLConnection openConnection(Uri uri) throws IOException {
+                HttpURLConnection conn = super.openConnection(uri);
+                conn.setRequestProperty("X-Test", "1");
+                return conn;
+            }
+        });
+        HttpURLConnection conn = resourceApi.createHttpConnection(uri("/custom"));
+        assertEquals(200, conn.getResponseCode());
+        conn.getInputStream().close();
+        assertEquals("GET /custom X-Test", requests.get(0));
+    }
+}
@@ -0,0 +1,279 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginEntry;
+import org.apache.cordova.PluginManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Initializes onload plugins through PluginManager, which needs the Android runtime.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PluginManagerStartupTest {
+    // Plugins are created by class name, so they report through statics.
+    static final List<String> initialized = new ArrayList<String>();
+    static CountDownLatch bothStarted;
+    static final AtomicInteger countedInitializations = new AtomicInteger();
+
+    private ExecutorService threadPool;
+    private PluginManager pluginManager;
+
+    public static class SlowPlugin extends CordovaPlugin {
+        volatile boolean ready;
+        volatile Thread initThread;
+
+        @Override
+        public boolean isInitializationThreadSafe() {
+            return true;
+        }
+
+        @Override
+        protected void pluginInitialize() {
+            initThread = Thread.currentThread();
+            bothStarted.countDown();
+            try {
+                // Only returns in time if the other SlowPlugin is initialized at the same time.
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            synchronized (initialized) {
+                initialized.add(getServiceName());
+            }
+            ready = true;
+        }
+    }
+
+    public static class DependentPlugin extends SlowPlugin {
+        @Override
+        public String[] getInitializationDependencies() {
+            return new String[] { "SlowA", "SlowB" };
+        }
+
+        @Override
+        protected void pluginInitialize() {
+            initThread = Thread.currentThread();
+            synchronized (initialized) {
+                initialized.add(getServiceName());
+            }
+            ready = true;
+        }
+    }
+
+    public static class UiPlugin extends CordovaPlugin {
+        volatile Thread initThread;
+
+        @Override
+        protected void pluginInitialize() {
+            initThread = Thread.currentThread();
+        }
+    }
+
+    public static class FailingPlugin extends SlowPlugin {
+        @Override
+        protected void pluginInitialize() {
+            throw new IllegalStateException("no database");
+        }
+    }
+
+    public static class HookPlugin extends CordovaPlugin {
+        volatile Thread initThread;
+
+        @Override
+        public boolean isInitializationThreadSafe() {
+            return true;
+        }
+
+        @Override
+        protected void pluginInitialize() {
+            initThread = Thread.currentThread();
+        }
+
+        @Override
+        public Boolean shouldAllowNavigation(String url) {
+            return url.startsWith("https://hooked.example/") ? true : null;
+        }
+    }
+
+    public static class CountedPlugin extends CordovaPlugin {
+        @Override
+        protected void pluginInitialize() {
+            countedInitializations.incrementAndGet();
+            try {
+                // Leaves time for AskingPlugin to ask for it meanwhile.
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static class AskingPlugin extends CordovaPlugin {
+        volatile CordovaPlugin counted;
+
+        @Override
+        public boolean isInitializationThreadSafe() {
+            return true;
+        }
+
+        @Override
+        protected void pluginInitialize() {
+            counted = webView.getPluginManager().getPlugin("Counted");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        initialized.clear();
+        countedInitializations.set(0);
+        bothStarted = new CountDownLatch(2);
+        threadPool = Executors.newCachedThreadPool();
+        final CordovaPreferences preferences = new CordovaPreferences();
+        CordovaWebView webView = newProxy(CordovaWebView.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getPluginManager".equals(method.getName())) {
+                    return pluginManager;
+                }
+                return "getPreferences".equals(method.getName()) ? preferences : defaultValue(method);
+            }
+        });
+        CordovaInterface cordova = newProxy(CordovaInterface.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getThreadPool".equals(method.getName()) ? threadPool : defaultValue(method);
+            }
+        });
+        String prefix = PluginManagerStartupTest.class.getName() + "$";
+        pluginManager = new PluginManager(webView, cordova, Arrays.asList(
+                new PluginEntry("Dependent", prefix + "DependentPlugin", true),
+                new PluginEntry("SlowA", prefix + "SlowPlugin", true),
+                new PluginEntry("Ui", prefix + "UiPlugin", true),
+                new PluginEntry("SlowB", prefix + "SlowPlugin", true),
+                new PluginEntry("Failing", prefix + "FailingPlugin", true),
+                new PluginEntry("Hook", prefix + "HookPlugin", true),
+                new PluginEntry("Asking", prefix + "AskingPlugin", true),
+                new PluginEntry("Counted", prefix + "CountedPlugin", true)));
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class || type == long.class) {
+            return 0;
+        }
+        return null;
+    }
+
+    @Test
+    public void testThreadSafePluginsInitializeInParallel() {
+        pluginManager.init();
+
+        UiPlugin ui = (UiPlugin) pluginManager.getPlugin("Ui");
+        assertSame(Thread.currentThread(), ui.initThread);
+
+        SlowPlugin slowA = (SlowPlugin) pluginManager.getPlugin("SlowA");
+        SlowPlugin slowB = (SlowPlugin) pluginManager.getPlugin("SlowB");
+        // getPlugin() waited for them.
+        assertTrue(slowA.ready);
+        assertTrue(slowB.ready);
+        assertNotSame(Thread.currentThread(), slowA.initThread);
+        assertNotSame(slowA.initThread, slowB.initThread);
+    }
+
+    @Test
+    public void testDependenciesInitializeFirst() {
+        pluginManager.init();
+        SlowPlugin dependent = (SlowPlugin) pluginManager.getPlugin("Dependent");
+        assertTrue(dependent.ready);
+        assertNotSame(Thread.currentThread(), dependent.initThread);
+        synchronized (initialized) {
+            assertEquals("Dependent", initialized.get(initialized.size() - 1));
+        }
+    }
+
+    @Test
+    public void testFailedPluginIsMissing() {
+        pluginManager.init();
+        assertNull(pluginManager.getPlugin("Failing"));
+        assertNull(pluginManager.getPlugin("Failing"));
+    }
+
+    @Test
+    public void testLifecycleEventsWaitForInitialization() {
+        pluginManager.init();
+        pluginManager.onStart();
+        synchronized (initialized) {
+            assertTrue(initialized.containsAll(Arrays.asList("SlowA", "SlowB", "Dependent")));
+        }
+    }
+
+    @Test
+    public void testPluginsWithHooksInitializeOnCallingThread() {
+        pluginManager.init();
+        // Answered without anything waiting for the plugin.
+        assertTrue(pluginManager.shouldAllowNavigation("https://hooked.example/"));
+        HookPlugin hook = (HookPlugin) pluginManager.getPlugin("Hook");
+        assertSame(Thread.currentThread(), hook.initThread);
+    }
+
+    @Test
+    public void testPluginAskedForDuringStartupIsCreatedOnce() {
+        pluginManager.init();
+        AskingPlugin asking = (AskingPlugin) pluginManager.getPlugin("Asking");
+        assertSame(pluginManager.getPlugin("Counted"), asking.counted);
+        assertEquals(1, countedInitializations.get());
+    }
+}
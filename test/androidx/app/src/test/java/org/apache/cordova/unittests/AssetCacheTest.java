@@ -0,0 +1,121 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.AssetCache;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AssetCacheTest {
+
+    private static class FakeAssetCache extends AssetCache {
+        final Map<String, byte[]> assets = new HashMap<String, byte[]>();
+        int opens;
+
+        FakeAssetCache(int maxSize) {
+            super(null, maxSize);
+        }
+
+        @Override
+        protected InputStream openAsset(String assetPath) throws IOException {
+            opens++;
+            return new ByteArrayInputStream(assets.get(assetPath));
+        }
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = is.read()) != -1) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRepeatedOpensAreServedFromMemory() throws IOException {
+        FakeAssetCache cache = new FakeAssetCache(100);
+        cache.assets.put("www/index.html", new byte[] { 1, 2, 3 });
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read(cache.open("www/index.html")));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read(cache.open("www/index.html")));
+        assertEquals(1, cache.opens);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        FakeAssetCache cache = new FakeAssetCache(100);
+        cache.assets.put("a", new byte[40]);
+        cache.assets.put("b", new byte[40]);
+        cache.assets.put("c", new byte[40]);
+
+        cache.open("a");
+        cache.open("b");
+        cache.open("a");
+        cache.open("c");
+        assertEquals(80, cache.getSize());
+        assertEquals(3, cache.opens);
+
+        cache.open("a");
+        assertEquals(3, cache.opens);
+        cache.open("b");
+        assertEquals(4, cache.opens);
+    }
+
+    @Test
+    public void testLargeAssetsAreNotCached() throws IOException {
+        FakeAssetCache cache = new FakeAssetCache(100);
+        cache.assets.put("big", new byte[51]);
+
+        assertEquals(51, read(cache.open("big")).length);
+        cache.open("big");
+        assertEquals(2, cache.opens);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testPrefetchedAssetsAreServedFromMemory() throws IOException {
+        FakeAssetCache cache = new FakeAssetCache(100);
+        cache.assets.put("www/cordova.js", new byte[] { 4, 5 });
+        cache.assets.put("big", new byte[51]);
+
+        assertTrue(cache.prefetch("www/cordova.js"));
+        assertTrue(cache.prefetch("www/cordova.js"));
+        assertFalse(cache.prefetch("big"));
+        assertEquals(2, cache.opens);
+        assertEquals(1, cache.getPrefetchCount());
+
+        assertArrayEquals(new byte[] { 4, 5 }, read(cache.open("www/cordova.js")));
+        assertEquals(2, cache.opens);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+}
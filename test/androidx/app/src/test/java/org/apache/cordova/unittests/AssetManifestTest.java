@@ -0,0 +1,74 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.AssetManifest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class AssetManifestTest {
+    // Written by lib/prepare.js for www/ containing index.html ("hello"), css/a.css ("a{}") and blob.xyz ("x").
+    private static final String MANIFEST_HEX = "4344564100000001000000020008746578742f6373730009746578742f68746d6c"
+            + "000000030008626c6f622e78797a0000000000000001ffff2d711642b726b04401627ca9fbac32f5"
+            + "00096373732f612e637373000000000000000300005f546eb4606b5c2b7d2a449a5cc2bbb4"
+            + "000a696e6465782e68746d6c000000000000000500012cf24dba5fb0a30e26e83b2ac5b9e29e";
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testReadsManifestWrittenByPrepare() throws IOException {
+        AssetManifest manifest = AssetManifest.read(new ByteArrayInputStream(fromHex(MANIFEST_HEX)));
+        assertEquals(3, manifest.size());
+
+        AssetManifest.Entry index = manifest.get("www/index.html");
+        assertEquals("index.html", index.getPath());
+        assertEquals(5, index.getSize());
+        assertEquals("text/html", index.getMimeType());
+        // First 16 bytes of the SHA-256 of "hello".
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e", index.getHashHex());
+
+        assertEquals("text/css", manifest.getWwwEntry("css/a.css").getMimeType());
+        assertNull(manifest.getWwwEntry("blob.xyz").getMimeType());
+    }
+
+    @Test
+    public void testOnlyCoversWww() throws IOException {
+        AssetManifest manifest = AssetManifest.read(new ByteArrayInputStream(fromHex(MANIFEST_HEX)));
+        assertTrue(manifest.covers("www/missing.js"));
+        assertNull(manifest.get("www/missing.js"));
+        assertFalse(manifest.covers("index.html"));
+        assertNull(manifest.get("index.html"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        AssetManifest.read(new ByteArrayInputStream("<html></html>".getBytes("UTF-8")));
+    }
+}
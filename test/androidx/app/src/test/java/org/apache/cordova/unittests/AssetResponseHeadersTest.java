@@ -0,0 +1,119 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.AssetManifest;
+import org.apache.cordova.AssetResponseHeaders;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AssetResponseHeadersTest {
+    // Sun, 01 Jan 2023 00:00:00 GMT
+    private static final long LAST_UPDATE_TIME = 1672531200000L;
+
+    private static AssetManifest manifestWith(String path, byte hashByte) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x43445641);
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeInt(1);
+        out.writeUTF(path);
+        out.writeLong(1);
+        out.writeShort(-1);
+        for (int i = 0; i < 16; i++) {
+            out.writeByte(hashByte);
+        }
+        return AssetManifest.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static Map<String, String> request(String name, String value) {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(name, value);
+        return headers;
+    }
+
+    @Test
+    public void testHeadersWithoutManifest() {
+        AssetResponseHeaders headers = new AssetResponseHeaders(null, LAST_UPDATE_TIME);
+        Map<String, String> response = headers.get("www/index.html", null);
+
+        assertEquals("\"" + Long.toHexString(LAST_UPDATE_TIME) + "\"", response.get("ETag"));
+        assertEquals("Sun, 01 Jan 2023 00:00:00 GMT", response.get("Last-Modified"));
+        assertEquals(AssetResponseHeaders.REVALIDATE_CACHE_CONTROL, response.get("Cache-Control"));
+        assertNull(response.get("Content-Encoding"));
+    }
+
+    @Test
+    public void testEachEncodingHasItsOwnETag() throws IOException {
+        AssetResponseHeaders headers = new AssetResponseHeaders(null, LAST_UPDATE_TIME);
+        Map<String, String> response = headers.get("www/index.html", "br");
+
+        assertEquals("br", response.get("Content-Encoding"));
+        assertNotEquals(headers.getETag("www/index.html", null), response.get("ETag"));
+        assertNotEquals(headers.getETag("www/index.html", "gzip"), response.get("ETag"));
+    }
+
+    @Test
+    public void testETagComesFromManifestHash() throws IOException {
+        AssetResponseHeaders headers = new AssetResponseHeaders(manifestWith("app.js", (byte) 0xab), LAST_UPDATE_TIME);
+
+        assertEquals("\"abababababababababababababababab\"", headers.getETag("www/app.js", null));
+        // Not in the manifest.
+        assertEquals("\"" + Long.toHexString(LAST_UPDATE_TIME) + "-gzip\"", headers.getETag("www/app.js", "gzip"));
+    }
+
+    @Test
+    public void testHashNamedFilesAreImmutable() {
+        assertTrue(AssetResponseHeaders.isHashNamed("www/main.3f2a9c1b.js"));
+        assertTrue(AssetResponseHeaders.isHashNamed("www/assets/index-BZ4xkL2p.js"));
+        assertTrue(AssetResponseHeaders.isHashNamed("www/chunk.1a2b3c4d5e6f7a8b.css"));
+        assertFalse(AssetResponseHeaders.isHashNamed("www/polyfill.js"));
+        assertFalse(AssetResponseHeaders.isHashNamed("www/index.html"));
+        assertFalse(AssetResponseHeaders.isHashNamed("www/cordova_plugins.js"));
+
+        AssetResponseHeaders headers = new AssetResponseHeaders(null, LAST_UPDATE_TIME);
+        assertEquals(AssetResponseHeaders.IMMUTABLE_CACHE_CONTROL, headers.get("www/main.3f2a9c1b.js", null).get("Cache-Control"));
+    }
+
+    @Test
+    public void testConditionalRequestsAreCounted() {
+        AssetResponseHeaders headers = new AssetResponseHeaders(null, LAST_UPDATE_TIME);
+        Map<String, String> response = headers.get("www/index.html", null);
+        String etag = response.get("ETag");
+
+        assertFalse(headers.isNotModified(new HashMap<String, String>(), response));
+        assertTrue(headers.isNotModified(request("if-none-match", "\"other\", W/" + etag), response));
+        assertFalse(headers.isNotModified(request("If-None-Match", "\"other\""), response));
+        assertTrue(headers.isNotModified(request("If-Modified-Since", "Sun, 01 Jan 2023 00:00:00 GMT"), response));
+        assertTrue(headers.isNotModified(request("If-None-Match", "*"), response));
+
+        assertEquals(4, headers.getConditionalRequestCount());
+        assertEquals(3, headers.getValidatorHitCount());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.ByteRange;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class ByteRangeTest {
+
+    private static byte[] read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testParse() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100);
+        assertEquals(10, range.start);
+        assertEquals(19, range.end);
+        assertEquals(10, range.getLength());
+        assertEquals("bytes 10-19/100", range.getContentRange());
+
+        range = ByteRange.parse("bytes=90-", 100);
+        assertEquals(90, range.start);
+        assertEquals(99, range.end);
+
+        range = ByteRange.parse("bytes=-30", 100);
+        assertEquals(70, range.start);
+        assertEquals(99, range.end);
+
+        // The end is clamped to the resource.
+        range = ByteRange.parse("bytes=50-1000", 100);
+        assertEquals(99, range.end);
+    }
+
+    @Test
+    public void testIgnoredHeaders() {
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 100));
+        assertNull(ByteRange.parse("items=0-1", 100));
+        assertNull(ByteRange.parse("bytes=5-1", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+        assertNull(ByteRange.parse("bytes=0-1", -1));
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        ByteRange range = ByteRange.parse("bytes=100-", 100);
+        assertFalse(range.isSatisfiable());
+        assertEquals("bytes */100", range.getUnsatisfiedContentRange());
+        assertFalse(ByteRange.parse("bytes=-0", 100).isSatisfiable());
+        assertTrue(ByteRange.parse("bytes=99-", 100).isSatisfiable());
+    }
+
+    @Test
+    public void testOpenSkipsToRange() throws IOException {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        InputStream is = ByteRange.parse("bytes=10-16", 100).open(new ByteArrayInputStream(data));
+        assertArrayEquals(new byte[] { 10, 11, 12, 13, 14, 15, 16 }, read(is));
+    }
+
+    @Test
+    public void testOpenReadsWhenSkipStops() throws IOException {
+        // Like streams that can't seek and return 0 from skip().
+        InputStream unskippable = new ByteArrayInputStream(new byte[] { 0, 1, 2, 3, 4 }) {
+            @Override
+            public synchronized long skip(long n) {
+                return 0;
+            }
+        };
+        InputStream is = ByteRange.parse("bytes=3-", 5).open(unskippable);
+        assertArrayEquals(new byte[] { 3, 4 }, read(is));
+    }
+}
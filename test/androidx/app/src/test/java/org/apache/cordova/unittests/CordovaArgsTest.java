@@ -0,0 +1,119 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.CordovaArgs;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CordovaArgsTest {
+    private static final String RAW_ARGS = " [\"a \\\"quoted\\\" ]string,\", 42, -1.5e3, true, null, [1, [2, \"]\"]], {\"k\": {\"n\": \"}\"}}, \"AQID\\/w==\" ] ";
+
+    @Test
+    public void testLazyArgsMatchJSONArray() throws JSONException {
+        JSONArray expected = new JSONArray(RAW_ARGS);
+        CordovaArgs lazy = new CordovaArgs(RAW_ARGS);
+        CordovaArgs eager = new CordovaArgs(expected);
+
+        assertEquals(eager.getString(0), lazy.getString(0));
+        assertEquals(eager.getInt(1), lazy.getInt(1));
+        assertEquals(eager.getDouble(2), lazy.getDouble(2), 0);
+        assertEquals(eager.getBoolean(3), lazy.getBoolean(3));
+        assertTrue(lazy.isNull(4));
+        assertEquals(eager.getJSONArray(5).toString(), lazy.getJSONArray(5).toString());
+        assertEquals(eager.getJSONObject(6).toString(), lazy.getJSONObject(6).toString());
+        assertEquals(eager.getString(7), lazy.getString(7));
+        assertNull(lazy.opt(8));
+        assertEquals("", lazy.optString(8));
+        try {
+            lazy.get(8);
+            fail("Expected an out of range index to throw");
+        } catch (JSONException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testEmptyAndMalformedArgs() throws JSONException {
+        assertNull(new CordovaArgs("[]").opt(0));
+        assertNull(new CordovaArgs(" [ ] ").opt(0));
+        for (String raw : new String[] { "", "{}", "[1", "[1 2]", "[\"a]", "[[1]", "[1] x" }) {
+            try {
+                // Like new JSONArray(raw), before any value is accessed.
+                new CordovaArgs(raw);
+                fail("Expected " + raw + " to be rejected");
+            } catch (JSONException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testGetArrayBuffer() throws JSONException {
+        byte[] expected = new byte[] { 1, 2, 3, (byte) 0xff };
+        CordovaArgs lazy = new CordovaArgs(RAW_ARGS);
+        assertEquals(expected.length, lazy.getArrayBufferLength(7));
+
+        ByteBuffer dest = ByteBuffer.allocate(8);
+        dest.put((byte) 9);
+        assertEquals(expected.length, lazy.getArrayBuffer(7, dest));
+        assertArrayEquals(expected, Arrays.copyOfRange(dest.array(), 1, 5));
+
+        assertArrayEquals(expected, lazy.getArrayBuffer(7));
+    }
+
+    @Test
+    public void testRawBase64FollowsDefaultDecoder() throws JSONException {
+        // Characters outside the alphabet are skipped, as by Base64.DEFAULT.
+        CordovaArgs args = new CordovaArgs("[\"AQ.I-D\\n*/w\", \"AQI\", \"AQ==\"]");
+        assertArrayEquals(new byte[] { 1, 2, 3, (byte) 0xff }, args.getArrayBuffer(0));
+        assertArrayEquals(new byte[] { 1, 2 }, args.getArrayBuffer(1));
+        assertArrayEquals(new byte[] { 1 }, args.getArrayBuffer(2));
+
+        for (String bad : new String[] { "A", "AQ=", "AQ==A", "=AQI", "A=QI", "AQI==" }) {
+            try {
+                new CordovaArgs("[\"" + bad + "\"]").getArrayBuffer(0);
+                fail("Expected " + bad + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryArrayBuffers() throws JSONException {
+        byte[] data = new byte[] { 1, 2, 3 };
+        CordovaArgs args = new CordovaArgs("[\"a\", {}]", new byte[][] { null, data });
+        assertEquals("a", args.getString(0));
+        // Handed over without a copy.
+        assertSame(data, args.getArrayBuffer(1));
+        assertEquals(3, args.getArrayBufferLength(1));
+
+        ByteBuffer dest = ByteBuffer.allocate(3);
+        assertEquals(3, args.getArrayBuffer(1, dest));
+        assertArrayEquals(data, dest.array());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.CordovaIoExecutor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class CordovaIoExecutorTest {
+
+    @Test
+    public void testSupplyCompletesWithResultOrError() throws Exception {
+        CordovaIoExecutor executor = new CordovaIoExecutor(1);
+        CompletableFuture<String> result = executor.supply(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        });
+        assertEquals("done", result.get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> failure = executor.supply(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new IOException("disk");
+            }
+        });
+        try {
+            failure.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(1, executor.getFailedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCancelledTasksDontStart() throws Exception {
+        CordovaIoExecutor executor = new CordovaIoExecutor(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        CompletableFuture<Void> first = executor.supply(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                blocker.await();
+                return null;
+            }
+        });
+        final AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> queued = executor.supply(new Callable<Void>() {
+            @Override
+            public Void call() {
+                ran.set(true);
+                return null;
+            }
+        });
+        assertTrue(queued.cancel(true));
+        blocker.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testCancelInterruptsRunningTask() throws Exception {
+        CordovaIoExecutor executor = new CordovaIoExecutor(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Void> future = executor.supply(new Callable<Void>() {
+            @Override
+            public Void call() {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        future.cancel(true);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
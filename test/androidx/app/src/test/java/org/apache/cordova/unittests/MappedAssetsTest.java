@@ -0,0 +1,118 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.ByteRange;
+import org.apache.cordova.MappedAssets;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MappedAssetsTest {
+
+    private static class FakeMappedAssets extends MappedAssets {
+        final Map<String, byte[]> assets = new HashMap<String, byte[]>();
+        int maps;
+
+        FakeMappedAssets() {
+            super(null, 4);
+        }
+
+        @Override
+        protected ByteBuffer map(String assetPath) throws IOException {
+            maps++;
+            byte[] data = assets.get(assetPath);
+            if (data == null) {
+                throw new FileNotFoundException(assetPath);
+            }
+            if (data.length == 0) {
+                // Like FileChannel.map() for a size it can't map.
+                throw new IllegalArgumentException("Size exceeds Integer.MAX_VALUE");
+            }
+            return data.length < 4 ? null : ByteBuffer.wrap(data).asReadOnlyBuffer();
+        }
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testStreamsShareOneMapping() throws IOException {
+        FakeMappedAssets mappedAssets = new FakeMappedAssets();
+        mappedAssets.assets.put("www/app.wasm", new byte[] { 1, 2, 3, 4, 5 });
+
+        InputStream first = mappedAssets.open("www/app.wasm");
+        InputStream second = mappedAssets.open("www/app.wasm");
+        assertEquals(1, first.read());
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, read(second));
+        assertArrayEquals(new byte[] { 2, 3, 4, 5 }, read(first));
+        assertEquals(1, mappedAssets.maps);
+        assertEquals(1, mappedAssets.getMappedCount());
+    }
+
+    @Test
+    public void testUnmappableAssetsAreRemembered() {
+        FakeMappedAssets mappedAssets = new FakeMappedAssets();
+        mappedAssets.assets.put("www/small.js", new byte[] { 1 });
+
+        assertNull(mappedAssets.open("www/small.js"));
+        assertNull(mappedAssets.open("www/small.js"));
+        assertNull(mappedAssets.open("www/compressed.js"));
+        assertNull(mappedAssets.open("www/compressed.js"));
+        assertEquals(2, mappedAssets.maps);
+        assertEquals(0, mappedAssets.getMappedCount());
+    }
+
+    @Test
+    public void testAssetsThatCantBeMappedFallBack() {
+        FakeMappedAssets mappedAssets = new FakeMappedAssets();
+        mappedAssets.assets.put("www/huge.bin", new byte[0]);
+
+        assertNull(mappedAssets.open("www/huge.bin"));
+        assertNull(mappedAssets.open("www/huge.bin"));
+        assertEquals(1, mappedAssets.maps);
+        assertEquals(0, mappedAssets.getMappedCount());
+    }
+
+    @Test
+    public void testRangesSkipWithoutReading() throws IOException {
+        FakeMappedAssets mappedAssets = new FakeMappedAssets();
+        mappedAssets.assets.put("www/video.mp4", new byte[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+
+        InputStream is = mappedAssets.open("www/video.mp4");
+        assertEquals(8, is.available());
+        assertArrayEquals(new byte[] { 5, 6 }, read(ByteRange.parse("bytes=5-6", 8).open(is)));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.NativeToJsMessageQueue;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the lock-free ring buffer queue produces exactly the same output
+ * as the lock-based queue.
+ */
+public class NativeToJsMessageQueueRingBufferTest {
+
+    private static NativeToJsMessageQueue createQueue(int ringBufferCapacity) {
+        NativeToJsMessageQueue queue = new NativeToJsMessageQueue(ringBufferCapacity);
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+        return queue;
+    }
+
+    private static List<PluginResult> createMixedResults() throws JSONException {
+        List<PluginResult> results = new ArrayList<PluginResult>();
+        results.add(new PluginResult(PluginResult.Status.OK));
+        results.add(new PluginResult(PluginResult.Status.OK, "String \"with\" quotes\n"));
+        results.add(new PluginResult(PluginResult.Status.OK, (String) null));
+        results.add(new PluginResult(PluginResult.Status.OK, 42));
+        results.add(new PluginResult(PluginResult.Status.OK, 1.5f));
+        results.add(new PluginResult(PluginResult.Status.OK, true));
+        results.add(new PluginResult(PluginResult.Status.ERROR, "failure"));
+        results.add(new PluginResult(PluginResult.Status.NO_RESULT));
+        results.add(new PluginResult(PluginResult.Status.OK, new JSONObject().put("key", "value")));
+        results.add(new PluginResult(PluginResult.Status.OK, new JSONArray().put(1).put("two")));
+        List<PluginResult> parts = new ArrayList<PluginResult>();
+        parts.add(new PluginResult(PluginResult.Status.OK, "part"));
+        parts.add(new PluginResult(PluginResult.Status.OK, 7));
+        results.add(new PluginResult(PluginResult.Status.OK, parts));
+        PluginResult kept = new PluginResult(PluginResult.Status.OK, "kept");
+        kept.setKeepCallback(true);
+        results.add(kept);
+        return results;
+    }
+
+    private static void fill(NativeToJsMessageQueue queue, List<PluginResult> results, int repeat) {
+        for (int r = 0; r < repeat; r++) {
+            for (int i = 0; i < results.size(); i++) {
+                queue.addPluginResult(results.get(i), "Service" + r + "_" + i);
+            }
+            queue.addJavaScript("console.log(" + r + ");");
+        }
+    }
+
+    private static List<String> drain(NativeToJsMessageQueue queue, boolean asJs) {
+        List<String> batches = new ArrayList<String>();
+        String batch;
+        while ((batch = asJs ? queue.popAndEncodeAsJs() : queue.popAndEncode(false)) != null) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    @Test
+    public void testPopAndEncodeMatchesLockedQueue() throws JSONException {
+        List<PluginResult> results = createMixedResults();
+        for (int capacity : new int[] { 2, 16, 1024 }) {
+            NativeToJsMessageQueue expected = createQueue(0);
+            NativeToJsMessageQueue actual = createQueue(capacity);
+            fill(expected, results, 10);
+            fill(actual, results, 10);
+            assertEquals(drain(expected, false), drain(actual, false));
+            assertTrue(actual.isEmpty());
+        }
+    }
+
+    @Test
+    public void testPopAndEncodeAsJsMatchesLockedQueue() throws JSONException {
+        List<PluginResult> results = createMixedResults();
+        for (int capacity : new int[] { 2, 16, 1024 }) {
+            NativeToJsMessageQueue expected = createQueue(0);
+            NativeToJsMessageQueue actual = createQueue(capacity);
+            fill(expected, results, 10);
+            fill(actual, results, 10);
+            assertEquals(drain(expected, true), drain(actual, true));
+            assertTrue(actual.isEmpty());
+        }
+    }
+
+    @Test
+    public void testCombinedResponseCutoffMatchesLockedQueue() {
+        char[] chars = new char[5 * 1024 * 1024];
+        Arrays.fill(chars, 'x');
+        PluginResult big = new PluginResult(PluginResult.Status.OK, new String(chars));
+        PluginResult small = new PluginResult(PluginResult.Status.OK, "small");
+
+        for (boolean asJs : new boolean[] { false, true }) {
+            NativeToJsMessageQueue expected = createQueue(0);
+            NativeToJsMessageQueue actual = createQueue(4);
+            for (int i = 0; i < 4; i++) {
+                expected.addPluginResult(big, "Big" + i);
+                expected.addPluginResult(small, "Small" + i);
+                actual.addPluginResult(big, "Big" + i);
+                actual.addPluginResult(small, "Small" + i);
+            }
+            List<String> expectedBatches = drain(expected, asJs);
+            assertTrue(expectedBatches.size() > 1);
+            assertEquals(expectedBatches, drain(actual, asJs));
+        }
+    }
+
+    @Test
+    public void testDisabledBridgeDropsMessages() {
+        NativeToJsMessageQueue queue = new NativeToJsMessageQueue(8);
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK), "Dropped");
+        assertTrue(queue.isEmpty());
+
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK), "Cleared");
+        queue.reset();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testPausedQueueNotifiesOnResume() {
+        final AtomicInteger notifications = new AtomicInteger();
+        NativeToJsMessageQueue queue = new NativeToJsMessageQueue(8);
+        queue.addBridgeMode(new NativeToJsMessageQueue.BridgeMode() {
+            @Override
+            public void onNativeToJsMessageAvailable(NativeToJsMessageQueue queue) {
+                notifications.incrementAndGet();
+            }
+        });
+        queue.setBridgeMode(0);
+
+        queue.setPaused(true);
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK), "Paused");
+        assertEquals(0, notifications.get());
+        queue.setPaused(false);
+        assertEquals(1, notifications.get());
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK), "Resumed");
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    public void testConcurrentProducersKeepPerThreadOrder() throws InterruptedException {
+        final int producers = 4;
+        final int messagesPerProducer = 5000;
+        final NativeToJsMessageQueue queue = createQueue(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            final String callbackId = "Producer" + p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < messagesPerProducer; i++) {
+                            queue.addPluginResult(new PluginResult(PluginResult.Status.OK, i), callbackId);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        int[] nextExpected = new int[producers];
+        int received = 0;
+        start.countDown();
+        while (received < producers * messagesPerProducer) {
+            String batch = queue.popAndEncode(false);
+            if (batch == null) {
+                if (done.getCount() == 0 && queue.isEmpty()) {
+                    break;
+                }
+                Thread.yield();
+                continue;
+            }
+            // Each message is "<len> S01 Producer<p> n<i>", optionally followed by "*".
+            int pos = 0;
+            while (pos < batch.length() && batch.charAt(pos) != '*') {
+                int space = batch.indexOf(' ', pos);
+                int len = Integer.parseInt(batch.substring(pos, space));
+                String[] fields = batch.substring(space + 1, space + 1 + len).split(" ");
+                int producer = Integer.parseInt(fields[1].substring("Producer".length()));
+                assertEquals(nextExpected[producer], Integer.parseInt(fields[2].substring(1)));
+                nextExpected[producer]++;
+                received++;
+                pos = space + 1 + len;
+            }
+        }
+        done.await();
+        assertEquals(producers * messagesPerProducer, received);
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -174,4 +174,216 @@ public class NativeToJsMessageQueueTest {
         String resultString = queue.popAndEncodeAsJs();
         assertEquals(resultString, "cordova.callbackFromNative('" + TEST_CALLBACK_ID + "',true,1,[null],false);");
     }
+
+    //Results encoded when they are added must be identical to results encoded when flushed
+    @Test
+    public void testEncodeOnEnqueue()
+    {
+        NativeToJsMessageQueue expected = new NativeToJsMessageQueue();
+        NativeToJsMessageQueue actual = new NativeToJsMessageQueue();
+        actual.setEncodeOnEnqueue(true);
+        for (NativeToJsMessageQueue q : new NativeToJsMessageQueue[] { expected, actual }) {
+            q.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+            q.setBridgeMode(0);
+        }
+
+        ArrayList<PluginResult> multiparts = new ArrayList<PluginResult>();
+        multiparts.add(new PluginResult(PluginResult.Status.OK, "part"));
+        multiparts.add(new PluginResult(PluginResult.Status.OK, 1));
+        PluginResult[] results = new PluginResult[] {
+            new PluginResult(PluginResult.Status.OK, "String \"Plugin\" Result"),
+            new PluginResult(PluginResult.Status.ERROR, 5),
+            new PluginResult(PluginResult.Status.OK, (String)null),
+            new PluginResult(PluginResult.Status.OK, multiparts)
+        };
+        for (PluginResult result : results) {
+            expected.addPluginResult(result, TEST_CALLBACK_ID);
+            actual.addPluginResult(result, TEST_CALLBACK_ID);
+        }
+        assertEquals(expected.popAndEncode(false), actual.popAndEncode(false));
+
+        // NoOpBridgeMode flushes with popAndEncode(), so these are encoded again on demand.
+        for (PluginResult result : results) {
+            expected.addPluginResult(result, TEST_CALLBACK_ID);
+            actual.addPluginResult(result, TEST_CALLBACK_ID);
+        }
+        assertEquals(expected.popAndEncodeAsJs(), actual.popAndEncodeAsJs());
+
+        // A bridge that flushes as JS gets results pre-encoded as JS.
+        actual.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode() {
+            @Override
+            public boolean flushesAsJs() {
+                return true;
+            }
+        });
+        actual.setBridgeMode(1);
+        for (PluginResult result : results) {
+            expected.addPluginResult(result, TEST_CALLBACK_ID);
+            actual.addPluginResult(result, TEST_CALLBACK_ID);
+        }
+        assertEquals(expected.popAndEncodeAsJs(), actual.popAndEncodeAsJs());
+    }
+
+    //Binary results aren't encoded ahead of time for a bridge that posts them as-is
+    @Test
+    public void testEncodeOnEnqueueSkipsDetachedBinary()
+    {
+        queue.setEncodeOnEnqueue(true);
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode() {
+            @Override
+            public boolean detachesBinaryPayloads() {
+                return true;
+            }
+        });
+        queue.setBridgeMode(0);
+        final int[] encodeCount = new int[1];
+        PluginResult result = new PluginResult(PluginResult.Status.OK, new byte[] { 1, 2, 3 }) {
+            @Override
+            public String getMessage() {
+                encodeCount[0]++;
+                return super.getMessage();
+            }
+        };
+        queue.addPluginResult(result, TEST_CALLBACK_ID);
+
+        ArrayList<byte[]> binaryPayloads = new ArrayList<byte[]>();
+        assertEquals("S01 " + TEST_CALLBACK_ID + " a", queue.popAndEncodeAsWebMessage(binaryPayloads));
+        assertEquals(1, binaryPayloads.size());
+        assertEquals(0, encodeCount[0]);
+    }
+
+    @Test
+    public void testFlushStats()
+    {
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+
+        for (int i = 0; i < 3; i++) {
+            queue.addPluginResult(new PluginResult(PluginResult.Status.OK, i), TEST_CALLBACK_ID);
+        }
+        queue.popAndEncodeAsJs();
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK), TEST_CALLBACK_ID);
+        queue.popAndEncode(false);
+        assertNull(queue.popAndEncode(false));
+
+        NativeToJsMessageQueue.FlushStats stats = queue.getFlushStats();
+        assertEquals(2, stats.getFlushCount());
+        assertEquals(4, stats.getMessageCount());
+        assertEquals(3, stats.getMaxBatchSize());
+        assertEquals(2.0, stats.getAverageBatchSize(), 0.0);
+    }
+
+    //Messages larger than the fragment size are split into "P" messages that exec.js reassembles
+    @Test
+    public void testFragmentedPopAndEncode()
+    {
+        NativeToJsMessageQueue expected = new NativeToJsMessageQueue();
+        NativeToJsMessageQueue actual = new NativeToJsMessageQueue();
+        actual.setFragmentSize(30);
+        for (NativeToJsMessageQueue q : new NativeToJsMessageQueue[] { expected, actual }) {
+            q.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+            q.setBridgeMode(0);
+            q.addPluginResult(new PluginResult(PluginResult.Status.OK, "A plugin result that is longer than twenty characters"), TEST_CALLBACK_ID);
+            q.addPluginResult(new PluginResult(PluginResult.Status.OK, 1), TEST_CALLBACK_ID);
+        }
+        String expectedBatch = expected.popAndEncode(false);
+        int space = expectedBatch.indexOf(' ');
+        int expectedLength = Integer.parseInt(expectedBatch.substring(0, space));
+        String expectedMessage = expectedBatch.substring(space + 1, space + 1 + expectedLength);
+
+        StringBuilder reassembled = new StringBuilder();
+        String batch = actual.popAndEncode(false);
+        int fragments = 0;
+        while (batch.contains(" P1")) {
+            assertTrue(batch.endsWith("*"));
+            reassembled.append(batch.substring(batch.indexOf(" P1") + 3, batch.length() - 1));
+            fragments++;
+            batch = actual.popAndEncode(false);
+        }
+        assertTrue(fragments > 1);
+        String lastFragment = batch.substring(batch.indexOf(" P0") + 3, batch.length() - 1);
+        assertEquals(expectedMessage, reassembled.append(lastFragment).toString());
+
+        // The message after the fragmented one is sent normally.
+        assertTrue(actual.popAndEncode(false).endsWith("S01 " + TEST_CALLBACK_ID + " n1"));
+        assertNull(actual.popAndEncode(false));
+    }
+
+    //A message that has started going out in fragments finishes in fragments
+    @Test
+    public void testFragmentingSurvivesLargerFragmentSize()
+    {
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+        queue.setFragmentSize(20);
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK, "A plugin result that is longer than twenty characters"), TEST_CALLBACK_ID);
+        assertTrue(queue.popAndEncode(false).contains(" P1"));
+
+        queue.setFragmentSize(1000);
+        // The rest of the message as its last fragment, not the whole message again.
+        assertTrue(queue.popAndEncode(false).contains(" P0"));
+        assertNull(queue.popAndEncode(false));
+
+        queue.setFragmentSize(20);
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK, "A plugin result that is longer than twenty characters"), TEST_CALLBACK_ID);
+        assertTrue(queue.popAndEncodeAsJs().contains("processFragment(\"P1"));
+        queue.setFragmentSize(1000);
+        assertTrue(queue.popAndEncodeAsJs().contains("processFragment(\"P0"));
+        assertNull(queue.popAndEncodeAsJs());
+    }
+
+    @Test
+    public void testFragmentedPopAndEncodeAsJs()
+    {
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+        queue.setFragmentSize(20);
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK, "A plugin result that is longer than twenty characters"), TEST_CALLBACK_ID);
+
+        String js;
+        while ((js = queue.popAndEncodeAsJs()) != null) {
+            assertTrue(js.contains("cordova.require('cordova/exec').processFragment(\"P"));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testPopAndEncodeAsWebMessageDetachesBinary()
+    {
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+        byte[] data = new byte[] { 1, 2, 3 };
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK, data), TEST_CALLBACK_ID);
+        // Stands in for android.util.Base64, which isn't available to JVM tests.
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK, data) {
+            @Override
+            public String getMessage() {
+                return java.util.Base64.getEncoder().encodeToString(getBinaryMessage());
+            }
+        }, TEST_CALLBACK_ID);
+
+        ArrayList<byte[]> binaryPayloads = new ArrayList<byte[]>();
+        assertEquals("S01 " + TEST_CALLBACK_ID + " a", queue.popAndEncodeAsWebMessage(binaryPayloads));
+        assertEquals(1, binaryPayloads.size());
+        assertArrayEquals(data, binaryPayloads.get(0));
+
+        // Without a list the data stays inline as Base64.
+        assertEquals("S01 " + TEST_CALLBACK_ID + " AAQID", queue.popAndEncodeAsWebMessage(null));
+        assertNull(queue.popAndEncodeAsWebMessage(binaryPayloads));
+    }
+
+    @Test
+    public void testBinaryResultCopiesCallerBuffer()
+    {
+        queue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
+        queue.setBridgeMode(0);
+        byte[] data = new byte[] { 1, 2, 3 };
+        queue.addPluginResult(new PluginResult(PluginResult.Status.OK, data), TEST_CALLBACK_ID);
+        // A plugin reusing its buffer after sending the result mustn't change what's sent.
+        data[0] = 9;
+
+        ArrayList<byte[]> binaryPayloads = new ArrayList<byte[]>();
+        queue.popAndEncodeAsWebMessage(binaryPayloads);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, binaryPayloads.get(0));
+    }
 }
@@ -0,0 +1,101 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.PolicyDecisionCache;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PolicyDecisionCacheTest {
+
+    @Test
+    public void testCountsHitsAndMissesPerKind() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(8);
+        assertNull(cache.get(PolicyDecisionCache.KIND_REQUEST, "https://example.com/a"));
+        cache.put(PolicyDecisionCache.KIND_REQUEST, "https://example.com/a", true, cache.getGeneration());
+        assertEquals(Boolean.TRUE, cache.get(PolicyDecisionCache.KIND_REQUEST, "https://example.com/a"));
+        // The same URL can be allowed as a request but not as a navigation.
+        assertNull(cache.get(PolicyDecisionCache.KIND_NAVIGATION, "https://example.com/a"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(2);
+        cache.put(PolicyDecisionCache.KIND_REQUEST, "a", true, cache.getGeneration());
+        cache.put(PolicyDecisionCache.KIND_REQUEST, "b", false, cache.getGeneration());
+        cache.get(PolicyDecisionCache.KIND_REQUEST, "a");
+        cache.put(PolicyDecisionCache.KIND_REQUEST, "c", true, cache.getGeneration());
+        assertEquals(2, cache.size());
+        assertEquals(Boolean.TRUE, cache.get(PolicyDecisionCache.KIND_REQUEST, "a"));
+        assertNull(cache.get(PolicyDecisionCache.KIND_REQUEST, "b"));
+        assertEquals(Boolean.TRUE, cache.get(PolicyDecisionCache.KIND_REQUEST, "c"));
+    }
+
+    @Test
+    public void testInvalidateAllEmptiesEveryCache() {
+        PolicyDecisionCache first = new PolicyDecisionCache(4);
+        PolicyDecisionCache second = new PolicyDecisionCache(4);
+        first.put(PolicyDecisionCache.KIND_BRIDGE_ACCESS, "file:///android_asset/www/index.html", true, first.getGeneration());
+        second.put(PolicyDecisionCache.KIND_EXTERNAL_URL, "tel:123", false, second.getGeneration());
+        PolicyDecisionCache.invalidateAll();
+        assertNull(first.get(PolicyDecisionCache.KIND_BRIDGE_ACCESS, "file:///android_asset/www/index.html"));
+        assertNull(second.get(PolicyDecisionCache.KIND_EXTERNAL_URL, "tel:123"));
+    }
+
+    @Test
+    public void testDropsDecisionMadeBeforeInvalidation() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(4);
+        int generation = cache.getGeneration();
+        // The allow list changes while the old decision is being made.
+        PolicyDecisionCache.invalidateAll();
+        cache.put(PolicyDecisionCache.KIND_REQUEST, "https://example.com/", true, generation);
+        assertEquals(0, cache.size());
+
+        generation = cache.getGeneration();
+        cache.clear();
+        cache.put(PolicyDecisionCache.KIND_REQUEST, "https://example.com/", true, generation);
+        assertEquals(0, cache.size());
+
+        // Undecided (null) results aren't cached either.
+        cache.put(PolicyDecisionCache.KIND_EXTERNAL_URL, "tel:123", null, cache.getGeneration());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSkipsDataBlobAndLongUrls() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(8);
+        StringBuilder longUrl = new StringBuilder("https://example.com/");
+        while (longUrl.length() <= PolicyDecisionCache.MAX_URL_LENGTH) {
+            longUrl.append('a');
+        }
+        String[] urls = {
+            "data:image/png;base64,iVBORw0KGgo=", "DATA:text/plain,a",
+            "blob:https://localhost/5f1c0c7e-4f2b-4c4b-9d1e-2b1f0b1f0b1f", longUrl.toString()
+        };
+        for (String url : urls) {
+            cache.put(PolicyDecisionCache.KIND_REQUEST, url, true, cache.getGeneration());
+            assertNull(cache.get(PolicyDecisionCache.KIND_REQUEST, url));
+        }
+        assertEquals(0, cache.size());
+    }
+}
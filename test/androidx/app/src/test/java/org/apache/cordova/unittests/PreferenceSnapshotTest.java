@@ -0,0 +1,102 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package org.apache.cordova.unittests;
+
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.PreferenceSnapshot;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PreferenceSnapshotTest {
+
+    @Test
+    public void testReadsLikeCordovaPreferences() {
+        CordovaPreferences preferences = new CordovaPreferences();
+        preferences.set("KeepRunning", "false");
+        preferences.set("LoadUrlTimeoutValue", "5000");
+        preferences.set("BackgroundColor", "0x80000000");
+        preferences.set("Scale", "1.5");
+        PreferenceSnapshot snapshot = preferences.getSnapshot();
+
+        assertFalse(snapshot.getBoolean("keeprunning", true));
+        assertFalse(snapshot.getBoolean("KeepRunning", true));
+        assertEquals(5000, snapshot.getInteger("LOADURLTIMEOUTVALUE", 20000));
+        assertEquals(preferences.getInteger("BackgroundColor", 0), snapshot.getInteger("BackgroundColor", 0));
+        assertEquals(0x80000000, snapshot.getColor("BackgroundColor", 0));
+        assertEquals(1.5, snapshot.getDouble("Scale", 0), 0);
+        assertEquals(7, snapshot.getInteger("Missing", 7));
+        assertNull(snapshot.getString("Missing", null));
+        assertTrue(snapshot.contains("scale"));
+        assertFalse(snapshot.contains("Missing"));
+        assertEquals("5000", snapshot.getAll().get("loadurltimeoutvalue"));
+    }
+
+    @Test
+    public void testInvalidValuesStillThrow() {
+        CordovaPreferences preferences = new CordovaPreferences();
+        preferences.set("SplashScreenDelay", "soon");
+        PreferenceSnapshot snapshot = preferences.getSnapshot();
+        for (int i = 0; i < 2; i++) {
+            try {
+                snapshot.getInteger("SplashScreenDelay", 0);
+                fail();
+            } catch (NumberFormatException e) {
+                // Same as CordovaPreferences.
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotIsReplacedAfterSet() {
+        CordovaPreferences preferences = new CordovaPreferences();
+        PreferenceSnapshot first = preferences.getSnapshot();
+        assertSame(first, preferences.getSnapshot());
+        assertEquals("https://localhost/", first.getLaunchUrlPrefix());
+
+        preferences.set("Scheme", "HTTP");
+        preferences.set("Hostname", "App");
+        PreferenceSnapshot second = preferences.getSnapshot();
+        assertNotSame(first, second);
+        assertEquals("http://app/", second.getLaunchUrlPrefix());
+        assertEquals("https://localhost/", first.getLaunchUrlPrefix());
+
+        preferences.set("AndroidInsecureFileModeEnabled", true);
+        assertEquals("file://", preferences.getSnapshot().getLaunchUrlPrefix());
+    }
+
+    @Test
+    public void testManySpellingsStillResolve() {
+        CordovaPreferences preferences = new CordovaPreferences();
+        preferences.set("ErrorUrl", "error.html");
+        PreferenceSnapshot snapshot = preferences.getSnapshot();
+        // Every capitalization of the name, and a miss for each: more than the snapshot remembers.
+        for (int i = 0; i < 256; i++) {
+            StringBuilder name = new StringBuilder("errorurl");
+            for (int bit = 0; bit < name.length(); bit++) {
+                if ((i & (1 << bit)) != 0) {
+                    name.setCharAt(bit, Character.toUpperCase(name.charAt(bit)));
+                }
+            }
+            assertEquals("error.html", snapshot.getString(name.toString(), null));
+            assertNull(snapshot.getString(name + "x", null));
+        }
+    }
+}